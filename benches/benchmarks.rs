@@ -12,12 +12,17 @@
 //!   cargo bench
 //!   cargo bench -- --filter call-only    # filter benchmarks
 //!   cargo bench -- --save-baseline name  # save Criterion baseline
+//!   UNIFFI_BENCH_CONFIG=benches/critical.toml cargo bench  # extra bindings config
+//!   cargo bench -- handle-map             # handle map churn benchmark
+//!   cargo bench -- shared-object          # shared object method call scaling benchmark
+//!   cargo bench -- object-footprint       # heap taken by each object wrapper
+//!   cargo bench -- async-fast-path        # ready-immediately vs pending async calls
 
 use anyhow::{Context, Result, bail};
 use camino::Utf8PathBuf;
 use std::env;
 use std::fs;
-use std::path::PathBuf;
+use std::path::{Path, PathBuf};
 use std::process::Command;
 use uniffi_bindgen::{BindgenLoader, BindgenPaths};
 use uniffi_bindgen_java::{GenerateOptions, generate};
@@ -33,9 +38,106 @@ fn main() -> Result<()> {
     }
     fs::create_dir_all(&tmp_dir)?;
 
-    // Build the benchmarks fixture cdylib
-    println!("Building benchmarks fixture...");
-    let test_helper = UniFFITestHelper::new("uniffi-fixture-benchmarks")?;
+    // Forward user args (filters, --save-baseline, etc.) to the Java process.
+    // cargo bench passes args as: [binary, filter..., --bench]
+    // We prepend "--" so parse_for_run_benchmarks() can find the separator.
+    let user_args: Vec<String> = env::args().skip(1).filter(|a| a != "--bench").collect();
+
+    // `cargo bench -- async-fast-path` times async calls on the futures fixture instead of
+    // running Criterion, whose suite only covers sync calls.
+    if user_args.iter().any(|a| a == "async-fast-path") {
+        let bindings = build_bindings(
+            "uniffi-fixture-futures",
+            &tmp_dir.join("futures"),
+            vec![project_root.join("benches/futures.toml")],
+        )?;
+        let classes = compile_runner(
+            &bindings,
+            &[project_root.join("benches/bindings/AsyncFastPath.java")],
+        )?;
+        return run_java(&bindings, &classes, "AsyncFastPath", &[]);
+    }
+
+    // `cargo bench -- shared-object` times calls on one object from many threads, with the
+    // coverall fixture's bindings as generated by default and with `Coveralls` as a shared object.
+    if user_args.iter().any(|a| a == "shared-object") {
+        let coverall_config = project_root.join("benches/coverall.toml");
+        for (build, config_layers) in [
+            ("default", vec![coverall_config.clone()]),
+            (
+                "shared_object",
+                vec![
+                    coverall_config,
+                    project_root.join("benches/coverall-shared.toml"),
+                ],
+            ),
+        ] {
+            let bindings = build_bindings(
+                "uniffi-fixture-coverall",
+                &tmp_dir.join("shared-object").join(build),
+                config_layers,
+            )?;
+            let classes = compile_runner(
+                &bindings,
+                &[project_root.join("benches/bindings/SharedObjectScaling.java")],
+            )?;
+            run_java(&bindings, &classes, "SharedObjectScaling", &[build.to_string()])?;
+        }
+        return Ok(());
+    }
+
+    let mut config_layers = Vec::new();
+    if let Ok(config_path) = env::var("UNIFFI_BENCH_CONFIG") {
+        let config_path = project_root.join(config_path);
+        println!("  config override: {}", config_path.display());
+        config_layers.push(config_path);
+    }
+    let bindings = build_bindings("uniffi-fixture-benchmarks", &tmp_dir, config_layers)?;
+
+    // Compile the benchmark runner script, and the handle map churn and object footprint
+    // benchmarks, which live in the bindings' package
+    let bench_srcs = vec![
+        project_root.join("benches/bindings/RunBenchmarks.java"),
+        project_root.join("benches/bindings/HandleMapChurn.java"),
+        project_root.join("benches/bindings/ObjectFootprint.java"),
+    ];
+    let classes = compile_runner(&bindings, &bench_srcs)?;
+
+    // `cargo bench -- handle-map` runs the handle map churn benchmark instead of Criterion.
+    if user_args.iter().any(|a| a == "handle-map") {
+        return run_java(&bindings, &classes, "uniffi.benchmarks.HandleMapChurn", &[]);
+    }
+
+    // `cargo bench -- object-footprint` measures object wrappers instead of running Criterion.
+    if user_args.iter().any(|a| a == "object-footprint") {
+        return run_java(&bindings, &classes, "uniffi.benchmarks.ObjectFootprint", &[]);
+    }
+
+    // parse_for_run_benchmarks() uses clap's parse_from() which expects argv[0]
+    // to be a program name. Insert a dummy so the real args aren't consumed as argv[0].
+    let mut runner_args = vec!["--".to_string(), "java-bench".to_string()];
+    runner_args.extend(user_args);
+    run_java(&bindings, &classes, "RunBenchmarks", &runner_args)
+}
+
+/// A fixture's generated bindings, packaged for the Java benchmarks.
+struct Bindings {
+    jar_file: PathBuf,
+    native_lib_dir: PathBuf,
+}
+
+/// Build a fixture's cdylib, generate its Java bindings with extra config layers, and package
+/// them into a jar in `tmp_dir`.
+fn build_bindings(
+    fixture_name: &str,
+    tmp_dir: &Path,
+    config_layers: Vec<PathBuf>,
+) -> Result<Bindings> {
+    fs::create_dir_all(tmp_dir)?;
+
+    // Build the fixture cdylib
+    println!("Building {fixture_name}...");
+    let test_helper = UniFFITestHelper::new(fixture_name)?;
     let cdylib_path = test_helper.cdylib_path()?;
     println!("  cdylib: {cdylib_path}");
 
@@ -44,6 +146,9 @@ fn main() -> Result<()> {
     let out_dir = Utf8PathBuf::from(tmp_dir.to_string_lossy().to_string());
 
     let mut paths = BindgenPaths::default();
+    for config_path in config_layers {
+        paths.add_config_override_layer(Utf8PathBuf::try_from(config_path)?);
+    }
     paths.add_cargo_metadata_layer(false)?;
     let loader = BindgenLoader::new(paths);
 
@@ -104,7 +209,7 @@ fn main() -> Result<()> {
 
     let jar_file = tmp_dir.join("benchmarks.jar");
     let jar_status = Command::new("jar")
-        .current_dir(&tmp_dir)
+        .current_dir(tmp_dir)
         .arg("cf")
         .arg(jar_file.file_name().unwrap())
         .arg("-C")
@@ -118,16 +223,24 @@ fn main() -> Result<()> {
         bail!("jar failed when packaging the bindings")
     }
 
-    // Compile the benchmark runner script
+    Ok(Bindings {
+        jar_file,
+        native_lib_dir,
+    })
+}
+
+/// Compile benchmark sources against the bindings, returning the class output directory.
+fn compile_runner(bindings: &Bindings, srcs: &[PathBuf]) -> Result<PathBuf> {
     println!("Compiling benchmark runner...");
-    let runner_src = project_root.join("benches/bindings/RunBenchmarks.java");
-    let runner_classpath = calc_classpath(vec![jar_file.to_string_lossy().to_string()]);
+    let classes_dir = bindings.jar_file.with_file_name("classes");
+    fs::create_dir_all(&classes_dir)?;
+    let runner_classpath = calc_classpath(vec![bindings.jar_file.to_string_lossy().to_string()]);
     let status = Command::new("javac")
         .arg("-classpath")
         .arg(&runner_classpath)
         .arg("-d")
-        .arg(&tmp_dir)
-        .arg(&runner_src)
+        .arg(&classes_dir)
+        .args(srcs)
         .spawn()
         .context("Failed to spawn `javac` to compile the benchmark runner")?
         .wait()
@@ -135,41 +248,36 @@ fn main() -> Result<()> {
     if !status.success() {
         bail!("javac failed when compiling the benchmark runner")
     }
+    Ok(classes_dir)
+}
 
-    // Run the benchmark
-    println!("Running benchmarks...");
+/// Run a compiled benchmark's main class against the bindings.
+fn run_java(
+    bindings: &Bindings,
+    classes_dir: &Path,
+    main_class: &str,
+    args: &[String],
+) -> Result<()> {
+    println!("Running {main_class}...");
     let run_classpath = calc_classpath(vec![
-        jar_file.to_string_lossy().to_string(),
-        tmp_dir.to_string_lossy().to_string(),
+        bindings.jar_file.to_string_lossy().to_string(),
+        classes_dir.to_string_lossy().to_string(),
     ]);
-
-    // Forward user args (filters, --save-baseline, etc.) to the Java process.
-    // cargo bench passes args as: [binary, filter..., --bench]
-    // We prepend "--" so parse_for_run_benchmarks() can find the separator.
-    let user_args: Vec<String> = env::args().skip(1).filter(|a| a != "--bench").collect();
-
-    let mut cmd = Command::new("java");
-    cmd.arg("-Xmx2g")
+    let status = Command::new("java")
+        .arg("-Xmx2g")
         .arg("--enable-native-access=ALL-UNNAMED")
-        .arg(format!("-Djava.library.path={}", native_lib_dir.display()))
+        .arg(format!("-Djava.library.path={}", bindings.native_lib_dir.display()))
         .arg("-classpath")
         .arg(&run_classpath)
-        .arg("RunBenchmarks")
-        .arg("--")
-        // parse_for_run_benchmarks() uses clap's parse_from() which expects argv[0]
-        // to be a program name. Insert a dummy so the real args aren't consumed as argv[0].
-        .arg("java-bench")
-        .args(&user_args);
-
-    let status = cmd
+        .arg(main_class)
+        .args(args)
         .spawn()
-        .context("Failed to spawn `java` to run benchmarks")?
+        .with_context(|| format!("Failed to spawn `java` to run {main_class}"))?
         .wait()
         .context("Failed to wait for `java`")?;
     if !status.success() {
-        bail!("Benchmark run failed")
+        bail!("{main_class} run failed")
     }
-
     Ok(())
 }
 
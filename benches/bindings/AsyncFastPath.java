@@ -0,0 +1,57 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import uniffi.fixture.futures.*;
+
+/**
+ * Async calls that are ready on their first poll, which complete inline on the calling thread,
+ * against ones that are truly pending and resume on the executor. A 0ms sleep still goes through
+ * the fixture's timer thread, so it's always pending. Run with
+ * {@code cargo bench -- async-fast-path}.
+ */
+public class AsyncFastPath {
+    static final int WARMUP_ROUNDS = 10;
+    static final int CALLS = 100_000;
+    static final int PENDING_CALLS = 10_000;
+
+    @FunctionalInterface
+    interface Calls {
+        void run(int count) throws Exception;
+    }
+
+    static void bench(String name, int count, Calls calls) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            calls.run(count / 10);
+        }
+        long start = System.nanoTime();
+        calls.run(count);
+        double perCall = (double) (System.nanoTime() - start) / count;
+        System.out.println(String.format("async-fast-path/%s: %.0f ns/call", name, perCall));
+    }
+
+    public static void main(String[] args) throws Exception {
+        bench("ready-immediately", CALLS, n -> {
+            for (int i = 0; i < n; i++) {
+                Futures.alwaysReady().get();
+            }
+        });
+        bench("pending (sequential)", PENDING_CALLS, n -> {
+            for (int i = 0; i < n; i++) {
+                Futures.sleep((short) 0).get();
+            }
+        });
+        bench("pending (in flight together)", PENDING_CALLS, n -> {
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                futures.add(Futures.sleep((short) 0));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        });
+    }
+}
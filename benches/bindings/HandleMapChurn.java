@@ -0,0 +1,150 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package uniffi.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Multi-threaded churn on the generated {@code UniffiHandleMap}, against the
+ * {@code ConcurrentHashMap<Long, T>} it replaced. Lives in the bindings' package to reach the
+ * package-private map. Run with {@code cargo bench -- handle-map}.
+ *
+ * <p>Each thread keeps a window of live handles, like in-flight async calls or callback objects
+ * lowered to Rust, and cycles through them: insert a new object, look it up, remove the oldest.
+ */
+public class HandleMapChurn {
+    static final int WINDOW = 16;
+    static final long WARMUP_MILLIS = 1_000;
+    static final long MEASURE_MILLIS = 2_000;
+
+    interface Handles {
+        long insert(Object obj);
+
+        Object get(long handle);
+
+        Object remove(long handle);
+    }
+
+    static final class SlabHandles implements Handles {
+        private final UniffiHandleMap<Object> map = new UniffiHandleMap<>();
+
+        public long insert(Object obj) {
+            return map.insert(obj);
+        }
+
+        public Object get(long handle) {
+            return map.get(handle);
+        }
+
+        public Object remove(long handle) {
+            return map.remove(handle);
+        }
+    }
+
+    // The handle map as it was before the slab.
+    static final class ConcurrentHashMapHandles implements Handles {
+        private final ConcurrentHashMap<Long, Object> map = new ConcurrentHashMap<>();
+        private final AtomicLong counter = new AtomicLong(1L);
+
+        public long insert(Object obj) {
+            long handle = counter.getAndAdd(2L);
+            map.put(handle, obj);
+            return handle;
+        }
+
+        public Object get(long handle) {
+            Object obj = map.get(handle);
+            if (obj == null) {
+                throw new IllegalStateException("Invalid handle");
+            }
+            return obj;
+        }
+
+        public Object remove(long handle) {
+            Object obj = map.remove(handle);
+            if (obj == null) {
+                throw new IllegalStateException("Invalid handle");
+            }
+            return obj;
+        }
+    }
+
+    // Cycles per second across all threads.
+    static double churn(Handles handles, int threads, long millis) throws Exception {
+        var barrier = new CyclicBarrier(threads + 1);
+        var cycles = new AtomicLong();
+        var stop = new AtomicBoolean();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                long[] window = new long[WINDOW];
+                Object value = new Object();
+                for (int i = 0; i < WINDOW; i++) {
+                    window[i] = handles.insert(value);
+                }
+                try {
+                    barrier.await();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                long done = 0;
+                int next = 0;
+                while (!stop.get()) {
+                    for (int i = 0; i < 1_000; i++) {
+                        long handle = handles.insert(value);
+                        if (handles.get(handle) != value) {
+                            throw new AssertionError("wrong object for handle " + handle);
+                        }
+                        handles.remove(window[next]);
+                        window[next] = handle;
+                        next = (next + 1) % WINDOW;
+                    }
+                    done += 1_000;
+                }
+                for (long handle : window) {
+                    handles.remove(handle);
+                }
+                cycles.addAndGet(done);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        barrier.await();
+        long start = System.nanoTime();
+        Thread.sleep(millis);
+        stop.set(true);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return cycles.get() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    static void compare(int threads) throws Exception {
+        List<Supplier<Handles>> maps = List.of(SlabHandles::new, ConcurrentHashMapHandles::new);
+        List<String> names = List.of("UniffiHandleMap", "ConcurrentHashMap");
+        StringBuilder line = new StringBuilder("handle-map/churn/" + threads + " threads:");
+        for (int i = 0; i < maps.size(); i++) {
+            churn(maps.get(i).get(), threads, WARMUP_MILLIS);
+            double perSecond = churn(maps.get(i).get(), threads, MEASURE_MILLIS);
+            line.append(String.format("  %s %.1f M cycles/s", names.get(i), perSecond / 1e6));
+        }
+        System.out.println(line);
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("One cycle is an insert, a get and a remove, with " + WINDOW + " live handles per thread.");
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads < processors; threads *= 2) {
+            compare(threads);
+        }
+        compare(processors);
+    }
+}
@@ -0,0 +1,42 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package uniffi.benchmarks;
+
+/**
+ * Java heap taken by each live generated object wrapper, measured on {@code TestInterface}: the
+ * wrapper itself plus everything it allocates to track its lifecycle and register with the
+ * cleaner. The Rust object is native memory and isn't counted. Run with
+ * {@code cargo bench -- object-footprint}, and check out an older commit to compare.
+ */
+public class ObjectFootprint {
+    static final int OBJECTS = 1_000_000;
+    static final int ROUNDS = 3;
+
+    static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            // Allocated up front so the array isn't counted.
+            TestInterface[] objects = new TestInterface[OBJECTS];
+            long before = usedHeap();
+            for (int i = 0; i < OBJECTS; i++) {
+                objects[i] = new TestInterface();
+            }
+            long after = usedHeap();
+            System.out.println(String.format("object-footprint/TestInterface: %.1f bytes/object",
+                (double) (after - before) / OBJECTS));
+            for (TestInterface object : objects) {
+                object.close();
+            }
+        }
+    }
+}
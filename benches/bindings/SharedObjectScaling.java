@@ -0,0 +1,79 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import uniffi.coverall.*;
+
+/**
+ * Multi-threaded scaling of method calls on one object shared by every thread. Run with
+ * {@code cargo bench -- shared-object}, which runs it twice: against the coverall fixture's
+ * bindings as generated by default, and with {@code Coveralls} as a {@code shared_object}. The
+ * first argument names the build in the output.
+ *
+ * <p>Each call is {@code Coveralls.strongCount()}, so it includes what every method call pays
+ * besides the counter: cloning the Rust {@code Arc}, which is one more shared atomic on the Rust
+ * side, and the FFI call itself.
+ */
+public class SharedObjectScaling {
+    static final long WARMUP_MILLIS = 1_000;
+    static final long MEASURE_MILLIS = 2_000;
+
+    // Calls per second across all threads.
+    static double calls(int threads, long millis) throws Exception {
+        var barrier = new CyclicBarrier(threads + 1);
+        var calls = new AtomicLong();
+        var stop = new AtomicBoolean();
+        List<Thread> workers = new ArrayList<>();
+        try (var coveralls = new Coveralls("shared_object_scaling")) {
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        barrier.await();
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                    long done = 0;
+                    while (!stop.get()) {
+                        for (int i = 0; i < 1_000; i++) {
+                            if (coveralls.strongCount() < 2L) {
+                                throw new AssertionError("a call should hold its own reference");
+                            }
+                        }
+                        done += 1_000;
+                    }
+                    calls.addAndGet(done);
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            barrier.await();
+            long start = System.nanoTime();
+            Thread.sleep(millis);
+            stop.set(true);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            return calls.get() / ((System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    static void measure(String build, int threads) throws Exception {
+        calls(threads, WARMUP_MILLIS);
+        double perSecond = calls(threads, MEASURE_MILLIS);
+        System.out.println(String.format("shared-object/%s/%d threads: %.1f M calls/s", build, threads, perSecond / 1e6));
+    }
+
+    public static void main(String[] args) throws Exception {
+        String build = args.length > 0 ? args[0] : "default";
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads < processors; threads *= 2) {
+            measure(build, threads);
+        }
+        measure(build, processors);
+    }
+}
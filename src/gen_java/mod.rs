@@ -189,6 +189,48 @@ pub struct Config {
     android: bool,
     #[serde(default)]
     nullness_annotations: bool,
+    /// Link the built-in leaf symbols (RustBuffer alloc/free, object clone/free) with
+    /// `Linker.Option.critical`.
+    #[serde(default)]
+    critical_downcalls: bool,
+    /// Link each downcall handle on first use instead of when `UniffiLib` is initialized, and
+    /// verify API checksums per symbol as it gets linked.
+    #[serde(default)]
+    lazy_linking: bool,
+    /// Generate sync functions and methods as straight-line bodies instead of going through the
+    /// `UniffiHelpers.uniffiRustCall*` and `callWithHandle` lambdas. Defaults to `true`.
+    inline_calls: Option<bool>,
+    /// Size of the platform thread pool that runs `blocking` calls made from virtual threads.
+    /// Defaults to the number of available processors.
+    blocking_threads: Option<usize>,
+    /// Also generate a blocking variant of every async function and method, which drives the
+    /// Rust future on the calling thread and parks between polls.
+    #[serde(default)]
+    async_blocking_variants: bool,
+    /// Name suffix for the blocking variants of async functions. Defaults to `"Blocking"`.
+    async_blocking_suffix: Option<String>,
+    /// Executor that async functions poll their Rust futures on when the caller doesn't pass
+    /// one. Defaults to the common `ForkJoinPool`.
+    #[serde(default)]
+    async_executor: AsyncExecutor,
+    /// Executor that lifts async results, if it should differ from `async_executor`.
+    async_lift_executor: Option<AsyncExecutor>,
+    /// Size of each `dedicated` async pool. Defaults to the number of available processors.
+    async_threads: Option<usize>,
+    /// Maximum number of async calls into this component in flight at once.
+    async_max_in_flight: Option<usize>,
+    /// What async calls over `async_max_in_flight` or a function's `max_in_flight` do.
+    #[serde(default)]
+    async_limit_policy: AsyncLimitPolicy,
+    /// Record counters and latency histograms for async calls in `UniffiAsyncMetrics`.
+    #[serde(default)]
+    async_metrics: bool,
+    /// Per-function options, keyed by function name or `"Object.method"` for methods.
+    #[serde(default)]
+    functions: HashMap<String, FunctionConfig>,
+    /// Per-object options, keyed by object name.
+    #[serde(default)]
+    objects: HashMap<String, ObjectConfig>,
     /// Renames for types, fields, methods, variants, and arguments.
     /// Uses dot notation: "OldRecord" = "NewRecord", "OldRecord.field" = "new_field"
     #[serde(default)]
@@ -212,6 +254,363 @@ impl Config {
     pub fn nullness_annotations(&self) -> bool {
         self.nullness_annotations
     }
+
+    /// Whether downcall handles live in lazily initialized holder classes.
+    pub fn lazy_linking(&self) -> bool {
+        self.lazy_linking
+    }
+
+    /// Whether sync calls are generated without the call helper lambdas.
+    pub fn inline_calls(&self) -> bool {
+        self.inline_calls.unwrap_or(true)
+    }
+
+    /// Size of the pool for `blocking` calls, if configured.
+    pub fn blocking_threads(&self) -> Option<usize> {
+        self.blocking_threads
+    }
+
+    /// Whether async callables also get a blocking variant.
+    pub fn async_blocking_variants(&self) -> bool {
+        self.async_blocking_variants
+    }
+
+    /// Name suffix for the blocking variants of async callables.
+    pub fn async_blocking_suffix(&self) -> &str {
+        self.async_blocking_suffix.as_deref().unwrap_or("Blocking")
+    }
+
+    /// Name of the default executor for polling async calls. Virtual threads aren't available
+    /// on Android, so that falls back to the common pool there.
+    pub fn async_executor(&self) -> &'static str {
+        self.async_executor_name(self.async_executor)
+    }
+
+    /// Name of the default executor for lifting async results, if configured separately.
+    pub fn async_lift_executor(&self) -> Option<&'static str> {
+        self.async_lift_executor
+            .map(|executor| self.async_executor_name(executor))
+    }
+
+    fn async_executor_name(&self, executor: AsyncExecutor) -> &'static str {
+        match executor {
+            AsyncExecutor::VirtualThreads if self.android => "common_pool",
+            AsyncExecutor::CommonPool => "common_pool",
+            AsyncExecutor::Dedicated => "dedicated",
+            AsyncExecutor::VirtualThreads => "virtual_threads",
+            AsyncExecutor::Direct => "direct",
+        }
+    }
+
+    /// Size of each `dedicated` async pool, if configured.
+    pub fn async_threads(&self) -> Option<usize> {
+        self.async_threads
+    }
+
+    /// Polls are started from the continuation upcall, which Rust makes while it holds the
+    /// future's scheduler lock, so a `direct` poll would try to take that lock again.
+    fn check_async_executors(&self) -> Result<()> {
+        if self.async_executor == AsyncExecutor::Direct {
+            anyhow::bail!(
+                "`async_executor = \"direct\"` would poll inside the Rust waker; it can only be used for `async_lift_executor`"
+            );
+        }
+        Ok(())
+    }
+
+    fn function_config(&self, name: &str) -> Option<&FunctionConfig> {
+        self.functions.get(name)
+    }
+
+    fn method_config(&self, object_name: &str, method_name: &str) -> Option<&FunctionConfig> {
+        self.functions.get(&format!("{object_name}.{method_name}"))
+    }
+
+    fn object_config(&self, name: &str) -> Option<&ObjectConfig> {
+        self.objects.get(name)
+    }
+
+    /// Whether the object counts in-flight calls with `UniffiStripedCallCounter`.
+    pub fn is_shared_object(&self, name: &str) -> bool {
+        self.object_config(name).is_some_and(|o| o.shared_object)
+    }
+
+    /// Whether the object keeps its call counter in plain fields and checks its owner thread.
+    pub fn is_thread_confined(&self, name: &str) -> bool {
+        self.object_config(name).is_some_and(|o| o.thread_confined)
+    }
+
+    /// Names of the FFI functions whose downcall handles are linked with
+    /// `Linker.Option.critical`.
+    ///
+    /// A critical downcall skips the thread state transition, so the Rust side must be short
+    /// and must never call back into Java. Async functions are never linked critical since the
+    /// real work happens in the poll functions. The built-in set only contains symbols that
+    /// can't upcall: object frees are left out when the component has foreign-implemented
+    /// traits, because dropping a Rust object may drop a Java callback handle.
+    pub fn critical_ffi_functions(&self, ci: &ComponentInterface) -> HashSet<String> {
+        let mut names = HashSet::new();
+        if self.critical_downcalls {
+            let has_foreign_traits = !ci.callback_interface_definitions().is_empty()
+                || ci
+                    .object_definitions()
+                    .iter()
+                    .any(|obj| obj.has_callback_interface());
+            names.insert(ci.ffi_rustbuffer_alloc().name().to_string());
+            names.insert(ci.ffi_rustbuffer_free().name().to_string());
+            for obj in ci.object_definitions() {
+                names.insert(obj.ffi_object_clone().name().to_string());
+                if !has_foreign_traits {
+                    names.insert(obj.ffi_object_free().name().to_string());
+                }
+            }
+        }
+        for func in ci.function_definitions() {
+            if !func.is_async() && self.function_config(func.name()).is_some_and(|f| f.critical) {
+                names.insert(func.ffi_func().name().to_string());
+            }
+        }
+        for obj in ci.object_definitions() {
+            let object_critical = self.object_config(obj.name()).is_some_and(|o| o.critical);
+            if object_critical {
+                names.insert(obj.ffi_object_clone().name().to_string());
+                names.insert(obj.ffi_object_free().name().to_string());
+                for cons in obj.constructors() {
+                    if !cons.is_async() {
+                        names.insert(cons.ffi_func().name().to_string());
+                    }
+                }
+            }
+            for meth in obj.methods() {
+                let method_critical = object_critical
+                    || self
+                        .method_config(obj.name(), meth.name())
+                        .is_some_and(|f| f.critical);
+                if !meth.is_async() && method_critical {
+                    names.insert(meth.ffi_func().name().to_string());
+                }
+            }
+        }
+        // A critical downcall must be short, so `blocking` wins when both are set.
+        let blocking = self.blocking_ffi_functions(ci);
+        names.retain(|name| !blocking.contains(name));
+        names
+    }
+
+    /// Names of the FFI functions of sync functions and methods marked `blocking`.
+    ///
+    /// When called from a virtual thread, these are run on a platform thread pool so the
+    /// downcall doesn't pin the caller's carrier. Android has no virtual threads, so there are
+    /// none there.
+    pub fn blocking_ffi_functions(&self, ci: &ComponentInterface) -> HashSet<String> {
+        let mut names = HashSet::new();
+        if self.android || self.functions.is_empty() {
+            return names;
+        }
+        for func in ci.function_definitions() {
+            if !func.is_async() && self.function_config(func.name()).is_some_and(|f| f.blocking) {
+                names.insert(func.ffi_func().name().to_string());
+            }
+        }
+        for obj in ci.object_definitions() {
+            for meth in obj.methods() {
+                if !meth.is_async()
+                    && self
+                        .method_config(obj.name(), meth.name())
+                        .is_some_and(|f| f.blocking)
+                {
+                    names.insert(meth.ffi_func().name().to_string());
+                }
+            }
+        }
+        names
+    }
+
+    /// Async functions and methods marked `coalesce`.
+    pub fn coalesced_calls(&self, ci: &ComponentInterface) -> Vec<CoalescedCall> {
+        let mut calls = Vec::new();
+        if self.functions.is_empty() {
+            return calls;
+        }
+        for func in ci.function_definitions() {
+            if func.is_async() && self.function_config(func.name()).is_some_and(|f| f.coalesce) {
+                calls.push(CoalescedCall {
+                    name: func.name().to_string(),
+                    ffi_name: func.ffi_func().name().to_string(),
+                    return_type: func.return_type().cloned(),
+                    throws_type: func.throws_type().cloned(),
+                });
+            }
+        }
+        for obj in ci.object_definitions() {
+            for meth in obj.methods() {
+                if meth.is_async()
+                    && self
+                        .method_config(obj.name(), meth.name())
+                        .is_some_and(|f| f.coalesce)
+                {
+                    calls.push(CoalescedCall {
+                        name: format!("{}.{}", obj.name(), meth.name()),
+                        ffi_name: meth.ffi_func().name().to_string(),
+                        return_type: meth.return_type().cloned(),
+                        throws_type: meth.throws_type().cloned(),
+                    });
+                }
+            }
+        }
+        calls
+    }
+
+    /// A shared object's striped counter and a thread-confined object's plain fields are two
+    /// different ways of counting calls, so an object can only use one.
+    fn check_object_configs(&self) -> Result<()> {
+        for (name, object) in &self.objects {
+            if object.shared_object && object.thread_confined {
+                anyhow::bail!(
+                    "`shared_object` and `thread_confined` can't both be set for `{name}`"
+                );
+            }
+        }
+        Ok(())
+    }
+
+    /// The component-wide in-flight limit for async calls, if any.
+    pub fn async_max_in_flight(&self) -> Option<usize> {
+        self.async_max_in_flight
+    }
+
+    pub fn async_limit_fails_fast(&self) -> bool {
+        self.async_limit_policy == AsyncLimitPolicy::Fail
+    }
+
+    /// Async functions and methods with their own `max_in_flight`, ordered by FFI name.
+    pub fn async_function_limits(&self, ci: &ComponentInterface) -> Vec<AsyncFunctionLimit> {
+        let mut limits = Vec::new();
+        if self.functions.is_empty() {
+            return limits;
+        }
+        let mut add = |name: String, ffi_name: &str, config: Option<&FunctionConfig>| {
+            if let Some(limit) = config.and_then(|f| f.max_in_flight) {
+                limits.push(AsyncFunctionLimit {
+                    name,
+                    field: ffi_name.to_shouty_snake_case(),
+                    limit,
+                });
+            }
+        };
+        for func in ci.function_definitions() {
+            if func.is_async() {
+                add(
+                    func.name().to_string(),
+                    func.ffi_func().name(),
+                    self.function_config(func.name()),
+                );
+            }
+        }
+        for obj in ci.object_definitions() {
+            for meth in obj.methods() {
+                if meth.is_async() {
+                    add(
+                        format!("{}.{}", obj.name(), meth.name()),
+                        meth.ffi_func().name(),
+                        self.method_config(obj.name(), meth.name()),
+                    );
+                }
+            }
+        }
+        limits.sort_by(|a, b| a.field.cmp(&b.field));
+        limits
+    }
+
+    /// Options that don't apply to a function would otherwise be silently ignored, so they're
+    /// rejected: options for a function or method that doesn't exist, `blocking` on an async one,
+    /// and `coalesce` or `max_in_flight` on a sync one. Limits are `int`s in Java, and a limit of
+    /// 0 would queue or fail every call.
+    fn check_function_configs(&self, ci: &ComponentInterface) -> Result<()> {
+        let check = |name: &str, limit: usize| -> Result<()> {
+            if limit == 0 || limit > i32::MAX as usize {
+                anyhow::bail!(
+                    "the in-flight limit for `{name}` must be between 1 and {}, got {limit}",
+                    i32::MAX
+                );
+            }
+            Ok(())
+        };
+        if let Some(limit) = self.async_max_in_flight {
+            check("async_max_in_flight", limit)?;
+        }
+        if self.functions.is_empty() {
+            return Ok(());
+        }
+        // Whether each function and method is async, by its name in `functions`.
+        let mut callables: HashMap<String, bool> = HashMap::new();
+        for func in ci.function_definitions() {
+            callables.insert(func.name().to_string(), func.is_async());
+        }
+        for obj in ci.object_definitions() {
+            for meth in obj.methods() {
+                callables.insert(format!("{}.{}", obj.name(), meth.name()), meth.is_async());
+            }
+        }
+        let mut names: Vec<&String> = self.functions.keys().collect();
+        names.sort();
+        for name in names {
+            let config = &self.functions[name];
+            let Some(&is_async) = callables.get(name) else {
+                anyhow::bail!(
+                    "`functions` has options for `{name}`, which isn't a function or method"
+                );
+            };
+            if is_async && config.blocking {
+                anyhow::bail!("`blocking` is set for `{name}`, which is async");
+            }
+            if !is_async && config.coalesce {
+                anyhow::bail!("`coalesce` is set for `{name}`, which isn't async");
+            }
+            if let Some(limit) = config.max_in_flight {
+                if !is_async {
+                    anyhow::bail!("`max_in_flight` is set for `{name}`, which isn't async");
+                }
+                check(name, limit)?;
+            }
+        }
+        Ok(())
+    }
+
+    /// Whether async calls record `UniffiAsyncMetrics`.
+    pub fn async_metrics(&self) -> bool {
+        self.async_metrics
+    }
+
+    /// Async functions and methods with their `UniffiAsyncMetrics` fields, ordered by FFI name.
+    pub fn async_function_metrics(&self, ci: &ComponentInterface) -> Vec<AsyncFunctionMetrics> {
+        let mut metrics = Vec::new();
+        for func in ci.function_definitions() {
+            if func.is_async() {
+                metrics.push(AsyncFunctionMetrics {
+                    name: func.name().to_string(),
+                    field: self.async_metrics_field(func.ffi_func().name()),
+                });
+            }
+        }
+        for obj in ci.object_definitions() {
+            for meth in obj.methods() {
+                if meth.is_async() {
+                    metrics.push(AsyncFunctionMetrics {
+                        name: format!("{}.{}", obj.name(), meth.name()),
+                        field: self.async_metrics_field(meth.ffi_func().name()),
+                    });
+                }
+            }
+        }
+        metrics.sort_by(|a, b| a.field.cmp(&b.field));
+        metrics
+    }
+
+    /// Name of an async function's field in `UniffiAsyncMetrics`.
+    pub fn async_metrics_field(&self, ffi_func_name: &str) -> String {
+        ffi_func_name.to_shouty_snake_case()
+    }
 }
 
 impl Config {
@@ -259,6 +658,87 @@ pub struct CustomTypeConfig {
     lower: String,
 }
 
+/// Default executors for async calls, see `Config::async_executor`.
+#[derive(Debug, Default, Clone, Copy, PartialEq, Eq, Serialize, Deserialize)]
+#[serde(rename_all = "snake_case")]
+pub enum AsyncExecutor {
+    /// `ForkJoinPool.commonPool()`.
+    #[default]
+    CommonPool,
+    /// A fixed pool of `async_threads` daemon threads named `uniffi-async-N`.
+    Dedicated,
+    /// A new virtual thread per task.
+    VirtualThreads,
+    /// Run on whichever thread woke the future. Only allowed for `async_lift_executor`, and
+    /// only suitable for cheap lifts.
+    Direct,
+}
+
+/// What async calls over their in-flight limit do, see `Config::async_limit_policy`.
+#[derive(Debug, Default, Clone, Copy, PartialEq, Eq, Serialize, Deserialize)]
+#[serde(rename_all = "snake_case")]
+pub enum AsyncLimitPolicy {
+    /// Wait in a queue, without creating the Rust future, until a call finishes.
+    #[default]
+    Queue,
+    /// Fail with `UniffiAsyncLimitExceededException`.
+    Fail,
+}
+
+/// An async function or method marked `coalesce`.
+pub struct CoalescedCall {
+    /// Name of the function, as in `Config::functions`.
+    name: String,
+    ffi_name: String,
+    return_type: Option<Type>,
+    throws_type: Option<Type>,
+}
+
+/// An async function or method with its own in-flight limit.
+pub struct AsyncFunctionLimit {
+    /// Name of the function's limiter, as in `Config::functions`.
+    pub name: String,
+    /// Name of the limiter's field in `UniffiAsyncLimiter`.
+    pub field: String,
+    pub limit: usize,
+}
+
+/// An async function or method's entry in `UniffiAsyncMetrics`.
+pub struct AsyncFunctionMetrics {
+    /// Name of the function, as in `Config::functions`.
+    pub name: String,
+    /// Name of the function's field in `UniffiAsyncMetrics`.
+    pub field: String,
+}
+
+/// Options for a single function or method, see `Config::functions`.
+#[derive(Debug, Default, Clone, Serialize, Deserialize)]
+#[serde(default)]
+pub struct FunctionConfig {
+    /// Link the downcall with `Linker.Option.critical`.
+    critical: bool,
+    /// Run calls made from virtual threads on a platform thread pool, for slow calls that
+    /// would otherwise pin the virtual thread's carrier.
+    blocking: bool,
+    /// Maximum number of calls to this async function in flight at once.
+    max_in_flight: Option<usize>,
+    /// Let concurrent calls to this async function with equal arguments share one Rust future.
+    coalesce: bool,
+}
+
+/// Options for a single object, see `Config::objects`.
+#[derive(Debug, Default, Clone, Serialize, Deserialize)]
+#[serde(default)]
+pub struct ObjectConfig {
+    /// Link the constructors, methods, clone and free functions with `Linker.Option.critical`.
+    critical: bool,
+    /// Count in-flight calls with a striped counter instead of one `AtomicLong`, for objects
+    /// called from many threads at once.
+    shared_object: bool,
+    /// Keep the lifecycle bookkeeping in plain fields, for objects only used from one thread.
+    thread_confined: bool,
+}
+
 // functions replace literal "{}" in strings with a specified value.
 impl CustomTypeConfig {
     fn lift(&self, name: &str) -> String {
@@ -281,7 +761,12 @@ impl CustomTypeConfig {
 
 // Generate Java bindings for the given ComponentInterface, as a string.
 pub fn generate_bindings(config: &Config, ci: &ComponentInterface) -> Result<String> {
-    let output = JavaWrapper::new(config.clone(), ci)
+    config.check_async_executors()?;
+    config.check_function_configs(ci)?;
+    config.check_object_configs()?;
+    let calls = CallConfigs::new(config, ci);
+    calls.check_coalesced_functions(ci)?;
+    let output = JavaWrapper::new(config.clone(), ci, calls)
         .render()
         .context("failed to render java bindings")?;
 
@@ -298,25 +783,231 @@ pub fn generate_bindings(config: &Config, ci: &ComponentInterface) -> Result<Str
     }
 }
 
+/// Whether a value of `ty` can hold an object or callback interface handle. Types that can't be
+/// looked up (from other crates) are assumed to.
+fn type_holds_handles(ci: &ComponentInterface, ty: &Type, seen: &mut HashSet<String>) -> bool {
+    match ty {
+        Type::Object { .. } | Type::CallbackInterface { .. } => true,
+        Type::Optional { inner_type } | Type::Sequence { inner_type } => {
+            type_holds_handles(ci, inner_type, seen)
+        }
+        Type::Map {
+            key_type,
+            value_type,
+        } => type_holds_handles(ci, key_type, seen) || type_holds_handles(ci, value_type, seen),
+        Type::Custom { builtin, .. } => type_holds_handles(ci, builtin, seen),
+        Type::Record { name, .. } => {
+            if !seen.insert(name.clone()) {
+                return false;
+            }
+            match ci.get_record_definition(name) {
+                Some(record) => record
+                    .fields()
+                    .iter()
+                    .any(|field| type_holds_handles(ci, &field.as_type(), seen)),
+                None => true,
+            }
+        }
+        Type::Enum { name, .. } => {
+            if !seen.insert(name.clone()) {
+                return false;
+            }
+            match ci.get_enum_definition(name) {
+                Some(enum_) => enum_.variants().iter().any(|variant| {
+                    variant
+                        .fields()
+                        .iter()
+                        .any(|field| type_holds_handles(ci, &field.as_type(), seen))
+                }),
+                None => true,
+            }
+        }
+        _ => false,
+    }
+}
+
+/// Per-function config resolved against the component once per render, since the call macros
+/// look it up for every function and method.
+pub struct CallConfigs {
+    blocking_ffi_functions: HashSet<String>,
+    coalesced_calls: Vec<CoalescedCall>,
+    coalesced_ffi_functions: HashSet<String>,
+    async_function_limits: Vec<AsyncFunctionLimit>,
+    /// `UniffiAsyncLimiter` fields of the functions in `async_function_limits`.
+    async_limiter_fields: HashSet<String>,
+    has_component_limit: bool,
+}
+
+impl CallConfigs {
+    fn new(config: &Config, ci: &ComponentInterface) -> Self {
+        let async_function_limits = config.async_function_limits(ci);
+        let async_limiter_fields = async_function_limits
+            .iter()
+            .map(|limit| limit.field.clone())
+            .collect();
+        let coalesced_calls = config.coalesced_calls(ci);
+        let coalesced_ffi_functions = coalesced_calls
+            .iter()
+            .map(|call| call.ffi_name.clone())
+            .collect();
+        Self {
+            blocking_ffi_functions: config.blocking_ffi_functions(ci),
+            coalesced_calls,
+            coalesced_ffi_functions,
+            async_function_limits,
+            async_limiter_fields,
+            has_component_limit: config.async_max_in_flight().is_some(),
+        }
+    }
+
+    /// Whether calls to this FFI function are offloaded from virtual threads.
+    pub fn is_blocking_call(&self, ffi_func_name: &str) -> bool {
+        self.blocking_ffi_functions.contains(ffi_func_name)
+    }
+
+    pub fn has_blocking_calls(&self) -> bool {
+        !self.blocking_ffi_functions.is_empty()
+    }
+
+    /// Whether concurrent calls to this FFI function with equal arguments share one Rust future.
+    pub fn is_coalesced_call(&self, ffi_func_name: &str) -> bool {
+        self.coalesced_ffi_functions.contains(ffi_func_name)
+    }
+
+    pub fn has_coalesced_calls(&self) -> bool {
+        !self.coalesced_ffi_functions.is_empty()
+    }
+
+    /// Coalesced callers all get the same lifted result, or the same lifted error, so neither
+    /// can hold object handles: each caller would own, and eventually free, the same handle.
+    fn check_coalesced_functions(&self, ci: &ComponentInterface) -> Result<()> {
+        for call in &self.coalesced_calls {
+            for (what, ty) in [("result", &call.return_type), ("error", &call.throws_type)] {
+                if ty
+                    .as_ref()
+                    .is_some_and(|ty| type_holds_handles(ci, ty, &mut HashSet::new()))
+                {
+                    anyhow::bail!(
+                        "`coalesce` can't be used for `{}`: its {what} holds object handles, which can't be shared between callers",
+                        call.name
+                    );
+                }
+            }
+        }
+        Ok(())
+    }
+
+    /// Async functions and methods with their own `max_in_flight`, ordered by FFI name.
+    pub fn async_function_limits(&self) -> &[AsyncFunctionLimit] {
+        &self.async_function_limits
+    }
+
+    pub fn has_async_limits(&self) -> bool {
+        self.has_component_limit || !self.async_function_limits.is_empty()
+    }
+
+    /// The limiter an async call goes through, as a Java expression, if it has one.
+    pub fn async_limiter(&self, ffi_func_name: &str) -> Option<String> {
+        let field = ffi_func_name.to_shouty_snake_case();
+        if self.async_limiter_fields.contains(&field) {
+            Some(format!("UniffiAsyncLimiter.{field}"))
+        } else if self.has_component_limit {
+            Some("UniffiAsyncLimiter.COMPONENT".to_string())
+        } else {
+            None
+        }
+    }
+}
+
 #[derive(Template)]
 #[template(syntax = "java", escape = "none", path = "wrapper.java")]
 pub struct JavaWrapper<'a> {
     config: Config,
     ci: &'a ComponentInterface,
     type_helper_code: String,
+    critical_ffi_functions: HashSet<String>,
+    calls: CallConfigs,
+    /// With `lazy_linking`, the checksum symbol and expected value for each FFI function,
+    /// verified when that function is linked.
+    lazy_checksums: HashMap<String, (String, u16)>,
+    /// Checksums verified when `UniffiLib` is initialized.
+    eager_checksums: Vec<(String, u16)>,
+    /// `ForeignFutureResult*` structs that async callback methods complete with.
+    foreign_future_results: HashSet<String>,
 }
 
 impl<'a> JavaWrapper<'a> {
-    pub fn new(config: Config, ci: &'a ComponentInterface) -> Self {
-        let type_renderer = TypeRenderer::new(&config, ci);
+    pub fn new(config: Config, ci: &'a ComponentInterface, calls: CallConfigs) -> Self {
+        let type_renderer = TypeRenderer::new(&config, ci, &calls);
         let type_helper_code = type_renderer.render().unwrap();
+        let critical_ffi_functions = config.critical_ffi_functions(ci);
+        let mut lazy_checksums = HashMap::new();
+        let mut eager_checksums = Vec::new();
+        if !config.omit_checksums() {
+            let ffi_func_names: HashSet<String> = ci
+                .iter_ffi_function_definitions()
+                .map(|f| f.name().to_string())
+                .collect();
+            for (name, checksum) in ci.iter_checksums() {
+                // `uniffi_<crate>_checksum_<kind>_<name>` checks `uniffi_<crate>_fn_<kind>_<name>`.
+                // Callback interface methods have no such function, those stay eager.
+                let ffi_func_name = name.replacen("_checksum_", "_fn_", 1);
+                if config.lazy_linking() && ffi_func_names.contains(&ffi_func_name) {
+                    lazy_checksums.insert(ffi_func_name, (name, checksum));
+                } else {
+                    eager_checksums.push((name, checksum));
+                }
+            }
+        }
+        let foreign_future_results = ci
+            .callback_interface_definitions()
+            .iter()
+            .flat_map(|cbi| cbi.methods())
+            .chain(
+                ci.object_definitions()
+                    .iter()
+                    .filter(|obj| obj.has_callback_interface())
+                    .flat_map(|obj| obj.methods()),
+            )
+            .filter(|meth| meth.is_async())
+            .map(|meth| meth.foreign_future_ffi_result_struct().name().to_string())
+            .collect();
         Self {
             config,
             ci,
             type_helper_code,
+            critical_ffi_functions,
+            calls,
+            lazy_checksums,
+            eager_checksums,
+            foreign_future_results,
         }
     }
 
+    /// Whether async callback methods complete with this FFI struct, so it needs a completion
+    /// handle.
+    pub fn is_foreign_future_result(&self, ffi_struct_name: &str) -> bool {
+        self.foreign_future_results.contains(ffi_struct_name)
+    }
+
+    /// The checksum symbol and expected value to verify when `ffi_func_name` is linked.
+    pub fn lazy_checksum(&self, ffi_func_name: &str) -> Option<&(String, u16)> {
+        self.lazy_checksums.get(ffi_func_name)
+    }
+
+    pub fn eager_checksums(&self) -> &[(String, u16)] {
+        &self.eager_checksums
+    }
+
+    pub fn has_critical_downcalls(&self) -> bool {
+        !self.critical_ffi_functions.is_empty()
+    }
+
+    /// Whether the downcall handle for this FFI function is linked with `Linker.Option.critical`.
+    pub fn is_critical_downcall(&self, ffi_func_name: &str) -> bool {
+        self.critical_ffi_functions.contains(ffi_func_name)
+    }
+
     pub fn initialization_fns(&self) -> Vec<String> {
         self.ci
             .iter_local_types()
@@ -356,15 +1047,17 @@ impl<'a> JavaWrapper<'a> {
 pub struct TypeRenderer<'a> {
     config: &'a Config,
     ci: &'a ComponentInterface,
+    calls: &'a CallConfigs,
     // Track included modules for the `include_once()` macro
     include_once_names: RefCell<HashSet<String>>,
 }
 
 impl<'a> TypeRenderer<'a> {
-    fn new(config: &'a Config, ci: &'a ComponentInterface) -> Self {
+    fn new(config: &'a Config, ci: &'a ComponentInterface, calls: &'a CallConfigs) -> Self {
         Self {
             config,
             ci,
+            calls,
             include_once_names: RefCell::new(HashSet::new()),
         }
     }
@@ -1096,6 +1789,34 @@ mod filters {
         Ok(JavaCodeOracle.ffi_value_layout(type_))
     }
 
+    /// Generate the `FunctionDescriptor` used to link an FFI function's downcall handle.
+    pub fn ffi_function_descriptor(
+        func: &FfiFunction,
+        _v: &dyn askama::Values,
+    ) -> Result<String, askama::Error> {
+        let mut layouts: Vec<String> = func
+            .arguments()
+            .iter()
+            .map(|arg| JavaCodeOracle.ffi_value_layout(&arg.type_()))
+            .collect();
+        if func.has_rust_call_status_arg() {
+            layouts.push("java.lang.foreign.ValueLayout.ADDRESS".to_string());
+        }
+        Ok(match func.return_type() {
+            Some(return_type) => {
+                layouts.insert(0, JavaCodeOracle.ffi_value_layout(return_type));
+                format!(
+                    "java.lang.foreign.FunctionDescriptor.of({})",
+                    layouts.join(", ")
+                )
+            }
+            None => format!(
+                "java.lang.foreign.FunctionDescriptor.ofVoid({})",
+                layouts.join(", ")
+            ),
+        })
+    }
+
     /// Generate the full structLayout body for an FfiStruct, with computed padding
     pub fn ffi_struct_layout_body(
         ffi_struct: &uniffi_bindgen::interface::FfiStruct,
@@ -1814,6 +2535,14 @@ mod tests {
             bindings.contains("java.lang.Exception"),
             "android bindings should preserve java.lang.Exception"
         );
+        // Android has no virtual threads, so none of their call status handling is generated
+        assert!(
+            !bindings.contains("isVirtual()") && !bindings.contains("UniffiCallStatusPool"),
+            "android bindings should not use virtual thread APIs"
+        );
+
+        let jvm_bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(jvm_bindings.contains("UniffiCallStatusPool"));
     }
 
     #[test]
@@ -2619,4 +3348,979 @@ mod tests {
                 .join("\n")
         );
     }
+
+    fn downcall_handle_line<'a>(bindings: &'a str, ffi_func_name: &str) -> &'a str {
+        let needle = format!("findDowncallHandle(\"{ffi_func_name}\"");
+        bindings
+            .lines()
+            .find(|l| l.contains(&needle))
+            .unwrap_or_else(|| panic!("no downcall handle for {ffi_func_name}"))
+    }
+
+    fn primitive_test_ci() -> ComponentInterface {
+        let mut group = test_group();
+        for name in ["add", "slow"] {
+            group.add_item(Metadata::Func(FnMetadata {
+                module_path: "test".to_string(),
+                name: name.to_string(),
+                is_async: false,
+                inputs: vec![],
+                return_type: Some(Type::Int64),
+                throws: None,
+                checksum: None,
+                docstring: None,
+            }));
+        }
+        group.add_item(Metadata::Object(ObjectMetadata {
+            module_path: "test".to_string(),
+            name: "MyObj".to_string(),
+            remote: false,
+            imp: ObjectImpl::Struct,
+            docstring: None,
+        }));
+        group.add_item(Metadata::Method(MethodMetadata {
+            module_path: "test".to_string(),
+            self_name: "MyObj".to_string(),
+            name: "get".to_string(),
+            is_async: false,
+            inputs: vec![],
+            return_type: Some(Type::Int32),
+            throws: None,
+            takes_self_by_arc: false,
+            checksum: None,
+            docstring: None,
+        }));
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+        ci
+    }
+
+    #[test]
+    fn critical_downcalls_disabled_by_default() {
+        let ci = primitive_test_ci();
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(
+            !bindings.contains("Linker.Option.critical"),
+            "no downcall should be critical by default"
+        );
+    }
+
+    #[test]
+    fn critical_downcalls_builtin_set() {
+        let ci = primitive_test_ci();
+        let config: Config = toml::from_str("critical_downcalls = true").unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        let obj = ci.get_object_definition("MyObj").unwrap();
+        for name in [
+            ci.ffi_rustbuffer_alloc().name().to_string(),
+            ci.ffi_rustbuffer_free().name().to_string(),
+            obj.ffi_object_clone().name().to_string(),
+            obj.ffi_object_free().name().to_string(),
+        ] {
+            let line = downcall_handle_line(&bindings, &name);
+            assert!(line.contains(", CRITICAL)"), "expected {name} to be critical:\n{line}");
+        }
+        let add = ci.get_function_definition("add").unwrap();
+        let line = downcall_handle_line(&bindings, add.ffi_func().name());
+        assert!(
+            !line.contains("CRITICAL"),
+            "user functions aren't in the built-in set:\n{line}"
+        );
+    }
+
+    #[test]
+    fn critical_downcalls_per_function_and_object() {
+        let ci = primitive_test_ci();
+        let config: Config = toml::from_str(
+            "[functions.add]\ncritical = true\n[objects.MyObj]\ncritical = true",
+        )
+        .unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        let add = ci.get_function_definition("add").unwrap();
+        let slow = ci.get_function_definition("slow").unwrap();
+        let obj = ci.get_object_definition("MyObj").unwrap();
+        let get = obj.methods().into_iter().find(|m| m.name() == "get").unwrap();
+        for name in [add.ffi_func().name(), get.ffi_func().name()] {
+            let line = downcall_handle_line(&bindings, name);
+            assert!(line.contains(", CRITICAL)"), "expected {name} to be critical:\n{line}");
+        }
+        let line = downcall_handle_line(&bindings, slow.ffi_func().name());
+        assert!(!line.contains("CRITICAL"), "slow should not be critical:\n{line}");
+        let line = downcall_handle_line(&bindings, ci.ffi_rustbuffer_alloc().name());
+        assert!(
+            !line.contains("CRITICAL"),
+            "built-in set requires critical_downcalls:\n{line}"
+        );
+    }
+
+    #[test]
+    fn lazy_linking_uses_holders_and_per_symbol_checksums() {
+        let mut group = test_group();
+        group.add_item(Metadata::Func(FnMetadata {
+            module_path: "test".to_string(),
+            name: "add".to_string(),
+            is_async: false,
+            inputs: vec![],
+            return_type: Some(Type::Int64),
+            throws: None,
+            checksum: Some(4242),
+            docstring: None,
+        }));
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+        let add = ci.get_function_definition("add").unwrap();
+        let ffi_name = add.ffi_func().name();
+
+        let eager = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(eager.contains(&format!(
+            "private static final java.lang.invoke.MethodHandle MH_{ffi_name} = findDowncallHandle("
+        )));
+        assert!(eager.contains("(short) 4242);"), "checksum checked at init:\n{eager}");
+
+        let config: Config = toml::from_str("lazy_linking = true").unwrap();
+        let lazy = generate_bindings(&config, &ci).unwrap();
+        assert!(lazy.contains(&format!("private static final class MH_{ffi_name} {{")));
+        assert!(lazy.contains(&format!("MH_{ffi_name}.HANDLE.invokeExact(")));
+        let checksum_name = ffi_name.replacen("_fn_", "_checksum_", 1);
+        assert!(
+            lazy.contains(&format!(
+                "NamespaceLibrary.uniffiCheckApiChecksum({checksum_name}(), (short) 4242);"
+            )),
+            "checksum checked when the holder is initialized:\n{lazy}"
+        );
+        assert!(
+            !lazy.contains(&format!("uniffiCheckApiChecksum(UniffiLib.{checksum_name}()")),
+            "checksum not checked at init:\n{lazy}"
+        );
+    }
+
+    #[test]
+    fn inline_calls_generate_straight_line_bodies() {
+        let ci = primitive_test_ci();
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        let add = ci.get_function_definition("add").unwrap();
+        let obj = ci.get_object_definition("MyObj").unwrap();
+        let get = obj.methods().into_iter().find(|m| m.name() == "get").unwrap();
+        assert!(
+            bindings.contains(&format!(
+                "long _ret = UniffiLib.{}(_status);",
+                add.ffi_func().name()
+            )),
+            "function call should be inlined:\n{bindings}"
+        );
+        assert!(
+            bindings.contains(&format!(
+                "int _ret = UniffiLib.{}(uniffiHandle, _status);",
+                get.ffi_func().name()
+            )),
+            "method call should be inlined:\n{bindings}"
+        );
+        assert!(bindings.contains("uniffiAcquire();"));
+        assert!(
+            !bindings.contains("UniffiHelpers.uniffiRustCallLong("),
+            "no lambda call helpers in inline mode:\n{bindings}"
+        );
+        assert!(!bindings.contains("callWithHandle(uniffiHandle ->"));
+
+        let config: Config = toml::from_str("inline_calls = false").unwrap();
+        let lambdas = generate_bindings(&config, &ci).unwrap();
+        assert!(lambdas.contains("UniffiHelpers.uniffiRustCallLong("));
+        assert!(
+            lambdas.contains("callWithHandleInt(uniffiHandle ->"),
+            "method call should use the primitive callWithHandle variant:\n{lambdas}"
+        );
+        assert!(!lambdas.contains("callWithHandle(uniffiHandle ->"));
+    }
+
+    #[test]
+    fn throwing_calls_share_error_handler_instances() {
+        let mut group = test_group();
+        group.add_item(Metadata::Enum(EnumMetadata {
+            module_path: "test".to_string(),
+            name: "MathError".to_string(),
+            shape: EnumShape::Error { flat: true },
+            remote: false,
+            variants: vec![VariantMetadata {
+                name: "Overflow".to_string(),
+                discr: None,
+                fields: vec![],
+                docstring: None,
+            }],
+            discr_type: None,
+            non_exhaustive: false,
+            docstring: None,
+        }));
+        group.add_item(Metadata::Func(FnMetadata {
+            module_path: "test".to_string(),
+            name: "checked_add".to_string(),
+            is_async: false,
+            inputs: vec![],
+            return_type: Some(Type::Int32),
+            throws: Some(Type::Enum {
+                module_path: "test".to_string(),
+                name: "MathError".to_string(),
+            }),
+            checksum: None,
+            docstring: None,
+        }));
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+        for config in ["", "inline_calls = false"] {
+            let config: Config = toml::from_str(config).unwrap();
+            let bindings = generate_bindings(&config, &ci).unwrap();
+            assert!(
+                bindings.contains("ErrorHandler.INSTANCE, "),
+                "error handler should be a shared instance:\n{bindings}"
+            );
+            assert!(
+                !bindings.contains("ErrorHandler(),"),
+                "no error handler allocation per call:\n{bindings}"
+            );
+        }
+    }
+
+    #[test]
+    fn call_scope_backs_call_status_and_return_allocator() {
+        let ci = primitive_test_ci();
+        for config in ["", "android = true"] {
+            let config: Config = toml::from_str(config).unwrap();
+            let bindings = generate_bindings(&config, &ci).unwrap();
+            assert!(
+                bindings.contains("public final class UniffiCallScope implements"),
+                "UniffiCallScope should be public:\n{bindings}"
+            );
+            let helpers = &bindings[bindings.find("public final class UniffiHelpers").unwrap()..];
+            let status_fn = &helpers[helpers.find("uniffiCallStatus() {").unwrap()..];
+            let status_fn = &status_fn[..status_fn.find("\n    }").unwrap()];
+            assert!(
+                status_fn.contains("scope.callStatus()"),
+                "uniffiCallStatus should use the active scope:\n{status_fn}"
+            );
+            let alloc_fn = &helpers[helpers.find("uniffiReturnAllocator() {").unwrap()..];
+            let alloc_fn = &alloc_fn[..alloc_fn.find("\n    }").unwrap()];
+            assert!(
+                alloc_fn.contains("scope != null ? scope : RETURN_ALLOCATOR"),
+                "uniffiReturnAllocator should prefer the active scope:\n{alloc_fn}"
+            );
+            assert!(
+                !helpers.contains("callback.apply(RETURN_ALLOCATOR"),
+                "lambda helpers should go through uniffiReturnAllocator:\n{helpers}"
+            );
+        }
+    }
+
+    #[test]
+    fn blocking_calls_offload_from_virtual_threads() {
+        let ci = primitive_test_ci();
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(
+            !bindings.contains("UniffiBlockingExecutor"),
+            "nothing is blocking by default"
+        );
+
+        let config: Config = toml::from_str(
+            "blocking_threads = 3\n[functions.slow]\nblocking = true\ncritical = true\n[functions.\"MyObj.get\"]\nblocking = true",
+        )
+        .unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        for call in ["-> slow());", "-> get());"] {
+            assert!(
+                bindings.contains(&format!("UniffiBlockingExecutor.uniffiOffload(() {call}")),
+                "expected {call} to be offloaded:\n{bindings}"
+            );
+        }
+        assert!(
+            !bindings.contains("UniffiBlockingExecutor.uniffiOffload(() -> add());"),
+            "add is not blocking:\n{bindings}"
+        );
+        assert!(bindings.contains("int threads = 3;"), "{bindings}");
+        let slow = ci.get_function_definition("slow").unwrap();
+        let line = downcall_handle_line(&bindings, slow.ffi_func().name());
+        assert!(
+            !line.contains("CRITICAL"),
+            "blocking takes precedence over critical:\n{line}"
+        );
+
+        let config: Config =
+            toml::from_str("android = true\n[functions.slow]\nblocking = true").unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        assert!(
+            !bindings.contains("UniffiBlockingExecutor"),
+            "android has no virtual threads to offload from"
+        );
+    }
+
+    #[test]
+    fn inline_calls_generate_straight_line_upcalls() {
+        let mut group = test_group();
+        group.add_item(Metadata::Enum(EnumMetadata {
+            module_path: "test".to_string(),
+            name: "MathError".to_string(),
+            shape: EnumShape::Error { flat: false },
+            remote: false,
+            variants: vec![VariantMetadata {
+                name: "Overflow".to_string(),
+                discr: None,
+                fields: vec![],
+                docstring: None,
+            }],
+            discr_type: None,
+            non_exhaustive: false,
+            docstring: None,
+        }));
+        group.add_item(Metadata::CallbackInterface(CallbackInterfaceMetadata {
+            module_path: "test".to_string(),
+            name: "Counter".to_string(),
+            docstring: None,
+        }));
+        let error = Type::Enum {
+            module_path: "test".to_string(),
+            name: "MathError".to_string(),
+        };
+        for (index, (name, throws)) in [("next", None), ("checked_next", Some(error))]
+            .into_iter()
+            .enumerate()
+        {
+            group.add_item(Metadata::TraitMethod(TraitMethodMetadata {
+                module_path: "test".to_string(),
+                trait_name: "Counter".to_string(),
+                index: index as u32,
+                name: name.to_string(),
+                is_async: false,
+                inputs: vec![FnParamMetadata {
+                    name: "step".to_string(),
+                    ty: Type::Int64,
+                    by_ref: false,
+                    optional: false,
+                    default: None,
+                }],
+                return_type: Some(Type::Int64),
+                throws,
+                takes_self_by_arc: false,
+                checksum: None,
+                docstring: None,
+            }));
+        }
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        let impl_class =
+            &bindings[bindings.find("public class UniffiCallbackInterfaceCounter").unwrap()..];
+        assert!(
+            !impl_class.contains("makeCall") && !impl_class.contains("writeReturn"),
+            "upcalls should not allocate lambdas:\n{impl_class}"
+        );
+        assert!(
+            impl_class.contains(
+                ".set(java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED, 0, uniffiValue);"
+            ),
+            "primitive returns should be written without boxing:\n{impl_class}"
+        );
+        assert!(
+            impl_class.contains("} catch (MathException e) {"),
+            "declared errors should be caught directly:\n{impl_class}"
+        );
+        assert!(
+            impl_class.contains("UniffiHelpers.uniffiTraitInterfacePanic(uniffiCallStatus, e);"),
+            "{impl_class}"
+        );
+        assert!(
+            !impl_class.contains("uniffiCallStatus = uniffiCallStatus.reinterpret"),
+            "the status should only be sized on failure:\n{impl_class}"
+        );
+
+        let config: Config = toml::from_str("inline_calls = false").unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        assert!(
+            bindings.contains("UniffiHelpers.uniffiTraitInterfaceCallWithError("),
+            "inline_calls = false keeps the lambda-based upcalls:\n{bindings}"
+        );
+    }
+
+    #[test]
+    fn async_callbacks_share_completion_handles() {
+        let mut group = test_group();
+        group.add_item(Metadata::CallbackInterface(CallbackInterfaceMetadata {
+            module_path: "test".to_string(),
+            name: "Fetcher".to_string(),
+            docstring: None,
+        }));
+        for (index, (name, return_type)) in [
+            ("fetch_count", Type::Int32),
+            ("fetch_other_count", Type::Int32),
+            ("fetch_name", Type::String),
+        ]
+        .into_iter()
+        .enumerate()
+        {
+            group.add_item(Metadata::TraitMethod(TraitMethodMetadata {
+                module_path: "test".to_string(),
+                trait_name: "Fetcher".to_string(),
+                index: index as u32,
+                name: name.to_string(),
+                is_async: true,
+                inputs: vec![],
+                return_type: Some(return_type),
+                throws: None,
+                takes_self_by_arc: false,
+                checksum: None,
+                docstring: None,
+            }));
+        }
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        let handle = "private static final java.lang.invoke.MethodHandle COMPLETE = ";
+        assert_eq!(
+            bindings.matches(handle).count(),
+            2,
+            "one completion handle per result struct in use:\n{bindings}"
+        );
+        let impl_class =
+            &bindings[bindings.find("public class UniffiCallbackInterfaceFetcher").unwrap()..];
+        assert!(
+            !impl_class.contains("downcallHandle(") && !impl_class.contains("Arena.ofAuto()"),
+            "completions should not link handles or allocate arenas:\n{impl_class}"
+        );
+        assert_eq!(
+            impl_class.matches(".complete(uniffiFutureCallback, uniffiCallbackData, uniffiResult);").count(),
+            6,
+            "{impl_class}"
+        );
+    }
+
+    #[test]
+    fn async_calls_drive_one_poller_per_call() {
+        let mut group = test_group();
+        group.add_item(Metadata::Func(FnMetadata {
+            module_path: "test".to_string(),
+            name: "fetch".to_string(),
+            is_async: true,
+            inputs: vec![],
+            return_type: Some(Type::Int32),
+            throws: None,
+            checksum: None,
+            docstring: None,
+        }));
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(
+            bindings.contains("static final class UniffiRustFuturePoller<T, F, E extends java.lang.Exception> extends java.util.concurrent.CompletableFuture<T> implements java.lang.Runnable"),
+            "async calls should be driven by a poller:\n{bindings}"
+        );
+        assert!(
+            bindings.contains("uniffiContinuationHandleMap.get(data).resume(pollResult);"),
+            "the continuation handle should be reused across polls:\n{bindings}"
+        );
+        assert!(
+            !bindings.contains("thenComposeAsync") && !bindings.contains("thenApplyAsync"),
+            "polls should not chain a new future per wake:\n{bindings}"
+        );
+        assert!(
+            bindings.contains("if (this.startingThread == java.lang.Thread.currentThread()) {"),
+            "a wake during the first poll should be handled inline:\n{bindings}"
+        );
+    }
+
+    #[test]
+    fn async_blocking_variants_are_opt_in() {
+        let mut group = test_group();
+        group.add_item(Metadata::Func(FnMetadata {
+            module_path: "test".to_string(),
+            name: "fetch".to_string(),
+            is_async: true,
+            inputs: vec![],
+            return_type: Some(Type::Int32),
+            throws: None,
+            checksum: None,
+            docstring: None,
+        }));
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(
+            !bindings.contains("fetchBlocking("),
+            "blocking variants should be opt-in:\n{bindings}"
+        );
+
+        let config: Config = toml::from_str("async_blocking_variants = true").unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        assert!(
+            bindings.contains("fetchBlocking(")
+                && bindings.contains("throws java.lang.InterruptedException {"),
+            "{bindings}"
+        );
+        assert!(
+            bindings.contains("return UniffiAsyncHelpers.uniffiRustCallBlocking("),
+            "{bindings}"
+        );
+
+        let config: Config =
+            toml::from_str("async_blocking_variants = true\nasync_blocking_suffix = \"Sync\"")
+                .unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        assert!(
+            bindings.contains("fetchSync(") && !bindings.contains("fetchBlocking("),
+            "{bindings}"
+        );
+    }
+
+    #[test]
+    fn async_executors_are_configurable() {
+        let mut group = test_group();
+        group.add_item(Metadata::Func(FnMetadata {
+            module_path: "test".to_string(),
+            name: "fetch".to_string(),
+            is_async: true,
+            inputs: vec![],
+            return_type: Some(Type::Int32),
+            throws: None,
+            checksum: None,
+            docstring: None,
+        }));
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(
+            bindings.contains("fetch(UniffiAsyncHelpers.UNIFFI_DEFAULT_EXECUTOR);")
+                && !bindings.contains("fetch(java.util.concurrent.ForkJoinPool.commonPool());"),
+            "the no-executor overload should use the default executors:\n{bindings}"
+        );
+        assert!(
+            bindings.contains("POLL = uniffiNewExecutor(\"common_pool\", \"uniffi-async-\");")
+                && !bindings.contains("LIFT = uniffiNewExecutor("),
+            "{bindings}"
+        );
+
+        let config: Config = toml::from_str(
+            "async_executor = \"dedicated\"\nasync_threads = 3\nasync_lift_executor = \"virtual_threads\"",
+        )
+        .unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        assert!(
+            bindings.contains("POLL = uniffiNewExecutor(\"dedicated\", \"uniffi-async-\");")
+                && bindings.contains(
+                    "LIFT = uniffiNewExecutor(\"virtual_threads\", \"uniffi-async-lift-\");"
+                )
+                && bindings.contains("int threads = 3;"),
+            "{bindings}"
+        );
+
+        let config: Config =
+            toml::from_str("android = true\nasync_executor = \"virtual_threads\"").unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        assert!(
+            bindings.contains("POLL = uniffiNewExecutor(\"common_pool\", \"uniffi-async-\");")
+                && !bindings.contains("ofVirtual()"),
+            "virtual threads aren't available on Android:\n{bindings}"
+        );
+    }
+
+    #[test]
+    fn async_limits_gate_rust_future_creation() {
+        let mut group = test_group();
+        for name in ["fetch", "store"] {
+            group.add_item(Metadata::Func(FnMetadata {
+                module_path: "test".to_string(),
+                name: name.to_string(),
+                is_async: true,
+                inputs: vec![],
+                return_type: Some(Type::Int32),
+                throws: None,
+                checksum: None,
+                docstring: None,
+            }));
+        }
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+        let fetch_field = ci
+            .get_function_definition("fetch")
+            .unwrap()
+            .ffi_func()
+            .name()
+            .to_shouty_snake_case();
+
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(
+            !bindings.contains("UniffiAsyncLimiter"),
+            "limits should be opt-in:\n{bindings}"
+        );
+
+        let config: Config =
+            toml::from_str("async_max_in_flight = 64\n[functions.fetch]\nmax_in_flight = 4")
+                .unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        // The limited call spans several lines, compare it with whitespace collapsed.
+        let compact = bindings.split_whitespace().collect::<Vec<_>>().join(" ");
+        assert!(
+            compact.contains(&format!(
+                "return UniffiAsyncHelpers.uniffiRustCallAsyncLimited( UniffiAsyncLimiter.{fetch_field}, () -> UniffiLib."
+            )),
+            "fetch should go through its own limiter:\n{bindings}"
+        );
+        assert!(
+            compact.contains("uniffiRustCallAsyncLimited( UniffiAsyncLimiter.COMPONENT, () -> ")
+                && compact.contains("uniffiRustFuture -> UniffiAsyncHelpers.uniffiRustCallAsync("),
+            "store should go through the component limiter:\n{bindings}"
+        );
+        assert!(
+            bindings.contains(&format!(
+                "static final UniffiAsyncLimiter {fetch_field} = new UniffiAsyncLimiter(\"fetch\", 4, COMPONENT);"
+            )) && bindings.contains("limiter.enqueue(this);")
+                && !bindings.contains("new UniffiAsyncLimitExceededException(limiter)"),
+            "{bindings}"
+        );
+
+        let config: Config =
+            toml::from_str("async_max_in_flight = 64\nasync_limit_policy = \"fail\"").unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        assert!(
+            bindings.contains("completeExceptionally(new UniffiAsyncLimitExceededException(limiter));")
+                && !bindings.contains("limiter.enqueue(this);"),
+            "{bindings}"
+        );
+    }
+
+    #[test]
+    fn coalesced_calls_share_one_rust_future() {
+        let mut group = test_group();
+        group.add_item(Metadata::Object(ObjectMetadata {
+            module_path: "test".to_string(),
+            name: "Session".to_string(),
+            remote: false,
+            imp: ObjectImpl::Struct,
+            docstring: None,
+        }));
+        for (name, return_type) in [
+            ("lookup", Type::String),
+            (
+                "open",
+                Type::Object {
+                    module_path: "test".to_string(),
+                    name: "Session".to_string(),
+                    imp: ObjectImpl::Struct,
+                },
+            ),
+        ] {
+            group.add_item(Metadata::Func(FnMetadata {
+                module_path: "test".to_string(),
+                name: name.to_string(),
+                is_async: true,
+                inputs: vec![FnParamMetadata {
+                    name: "key".to_string(),
+                    ty: Type::String,
+                    by_ref: false,
+                    optional: false,
+                    default: None,
+                }],
+                return_type: Some(return_type),
+                throws: None,
+                checksum: None,
+                docstring: None,
+            }));
+        }
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+        let lookup = ci.get_function_definition("lookup").unwrap();
+
+        let config: Config = toml::from_str("[functions.lookup]\ncoalesce = true").unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        assert!(
+            bindings.contains(&format!(
+                "new UniffiAsyncHelpers.UniffiCoalescingKey(\"{}\", key),",
+                lookup.ffi_func().name()
+            )),
+            "lookup should be coalesced on its arguments:\n{bindings}"
+        );
+        assert_eq!(
+            bindings.matches("return UniffiAsyncHelpers.uniffiRustCallCoalesced(").count(),
+            1,
+            "only lookup is coalesced:\n{bindings}"
+        );
+
+        let config: Config = toml::from_str("[functions.open]\ncoalesce = true").unwrap();
+        let err = generate_bindings(&config, &ci).unwrap_err();
+        assert!(
+            err.to_string().contains("`open`"),
+            "results with object handles can't be shared: {err}"
+        );
+    }
+
+    #[test]
+    fn async_metrics_are_opt_in() {
+        let mut group = test_group();
+        group.add_item(Metadata::Func(FnMetadata {
+            module_path: "test".to_string(),
+            name: "fetch".to_string(),
+            is_async: true,
+            inputs: vec![],
+            return_type: Some(Type::Int32),
+            throws: None,
+            checksum: None,
+            docstring: None,
+        }));
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+        let fetch_field = ci
+            .get_function_definition("fetch")
+            .unwrap()
+            .ffi_func()
+            .name()
+            .to_shouty_snake_case();
+
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(
+            !bindings.contains("UniffiAsyncMetrics"),
+            "metrics should be opt-in:\n{bindings}"
+        );
+
+        let config: Config = toml::from_str("async_metrics = true").unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        assert!(
+            bindings.contains(&format!(
+                "static final UniffiAsyncMetrics {fetch_field} = new UniffiAsyncMetrics(\"fetch\");"
+            )) && bindings.contains(&format!("UniffiAsyncMetrics.{fetch_field},\n")),
+            "fetch should record its own metrics:\n{bindings}"
+        );
+        assert!(
+            bindings.contains("public interface UniffiAsyncMetricsMXBean")
+                && bindings.contains("public static void registerMBeans()"),
+            "{bindings}"
+        );
+
+        let config: Config = toml::from_str("async_metrics = true\nandroid = true").unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        assert!(
+            bindings.contains("public final class UniffiAsyncMetrics")
+                && !bindings.contains("javax.management"),
+            "there's no JMX on Android:\n{bindings}"
+        );
+    }
+
+    #[test]
+    fn async_batches_come_with_async_functions() {
+        let mut group = test_group();
+        group.add_item(Metadata::Func(FnMetadata {
+            module_path: "test".to_string(),
+            name: "fetch".to_string(),
+            is_async: false,
+            inputs: vec![],
+            return_type: Some(Type::Int32),
+            throws: None,
+            checksum: None,
+            docstring: None,
+        }));
+        let ci = ComponentInterface::from_metadata(group).unwrap();
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(!bindings.contains("UniffiAsyncBatch"), "{bindings}");
+
+        let mut group = test_group();
+        group.add_item(Metadata::Func(FnMetadata {
+            module_path: "test".to_string(),
+            name: "fetch".to_string(),
+            is_async: true,
+            inputs: vec![],
+            return_type: Some(Type::Int32),
+            throws: None,
+            checksum: None,
+            docstring: None,
+        }));
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(
+            bindings.contains("public final class UniffiAsyncBatch<T> {")
+                && bindings.contains("fetch(java.util.concurrent.Executor uniffiExecutor"),
+            "batch calls pass the batch's executor to the executor overloads:\n{bindings}"
+        );
+    }
+
+    #[test]
+    fn shared_objects_use_striped_call_counter() {
+        let ci = primitive_test_ci();
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(!bindings.contains("UniffiStripedCallCounter"));
+        assert!(bindings.contains("private volatile long callCounter = 1L;"));
+
+        let config: Config =
+            toml::from_str("[objects.MyObj]\nshared_object = true").unwrap();
+        let shared = generate_bindings(&config, &ci).unwrap();
+        assert!(shared.contains("final class UniffiStripedCallCounter {"));
+        assert!(
+            shared.contains("private final UniffiStripedCallCounter callCounter"),
+            "shared object should use the striped counter:\n{shared}"
+        );
+        assert!(shared.contains("int uniffiStripe = uniffiAcquire();"));
+        assert!(shared.contains("uniffiRelease(uniffiStripe);"));
+        assert!(!shared.contains("private volatile long callCounter"));
+    }
+
+    #[test]
+    fn thread_confined_objects_use_plain_fields() {
+        let ci = primitive_test_ci();
+        let config: Config =
+            toml::from_str("[objects.MyObj]\nthread_confined = true").unwrap();
+        let confined = generate_bindings(&config, &ci).unwrap();
+        assert!(
+            confined.contains("private long callCounter = 1L;"),
+            "thread confined object should count calls in a plain field:\n{confined}"
+        );
+        assert!(confined.contains("private void uniffiCheckOwner() {"));
+        assert!(confined.contains("public void close() {"));
+        assert!(!confined.contains("private volatile long callCounter"));
+
+        let config: Config =
+            toml::from_str("[objects.MyObj]\nthread_confined = true\nshared_object = true")
+                .unwrap();
+        let err = generate_bindings(&config, &ci).unwrap_err();
+        assert!(err.to_string().contains("can't both be set for `MyObj`"));
+    }
+
+    #[test]
+    fn objects_keep_lifecycle_state_in_fields() {
+        let ci = primitive_test_ci();
+        let bindings = generate_bindings(&Config::default(), &ci).unwrap();
+        assert!(
+            bindings.contains(
+                r#"CALL_COUNTER = lookup.findVarHandle(MyObj.class, "callCounter", long.class);"#
+            ),
+            "call counter should be a field behind a VarHandle:\n{bindings}"
+        );
+        assert!(bindings.contains("private volatile boolean wasDestroyed;"));
+        assert!(bindings.contains("UniffiLib.CLEANER.register(this, handle, UNIFFI_FREE);"));
+        assert!(!bindings.contains("java.util.concurrent.atomic.AtomicBoolean wasDestroyed"));
+        assert!(!bindings.contains("class UniffiCleanAction"));
+    }
+
+    #[test]
+    fn direct_executor_is_only_for_lifts() {
+        let mut group = test_group();
+        group.add_item(Metadata::Func(FnMetadata {
+            module_path: "test".to_string(),
+            name: "fetch".to_string(),
+            is_async: true,
+            inputs: vec![],
+            return_type: Some(Type::Int32),
+            throws: None,
+            checksum: None,
+            docstring: None,
+        }));
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+
+        let config: Config = toml::from_str("async_executor = \"direct\"").unwrap();
+        let err = generate_bindings(&config, &ci).unwrap_err();
+        assert!(err.to_string().contains("async_lift_executor"), "unexpected error: {err}");
+
+        let config: Config = toml::from_str("async_lift_executor = \"direct\"").unwrap();
+        let bindings = generate_bindings(&config, &ci).unwrap();
+        assert!(
+            bindings.contains("LIFT = uniffiNewExecutor(\"direct\", \"uniffi-async-lift-\");"),
+            "{bindings}"
+        );
+    }
+
+    #[test]
+    fn function_configs_are_validated() {
+        let mut group = test_group();
+        for (name, is_async) in [("fetch", true), ("parse", false)] {
+            group.add_item(Metadata::Func(FnMetadata {
+                module_path: "test".to_string(),
+                name: name.to_string(),
+                is_async,
+                inputs: vec![],
+                return_type: Some(Type::Int32),
+                throws: None,
+                checksum: None,
+                docstring: None,
+            }));
+        }
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+
+        for (toml, expected) in [
+            ("[functions.parse]\nmax_in_flight = 4", "isn't async"),
+            ("[functions.fetch]\nmax_in_flight = 0", "got 0"),
+            ("async_max_in_flight = 0", "got 0"),
+            ("async_max_in_flight = 2147483648", "got 2147483648"),
+            ("[functions.fetch]\nmax_in_flight = 2147483648", "got 2147483648"),
+            ("[functions.parse]\ncoalesce = true", "`coalesce` is set for `parse`"),
+            ("[functions.fetch]\nblocking = true", "`blocking` is set for `fetch`"),
+            ("[functions.fecth]\nmax_in_flight = 4", "`fecth`, which isn't"),
+        ] {
+            let config: Config = toml::from_str(toml).unwrap();
+            let err = generate_bindings(&config, &ci).unwrap_err();
+            assert!(err.to_string().contains(expected), "{toml}: unexpected error: {err}");
+        }
+
+        let config: Config = toml::from_str(
+            "async_max_in_flight = 2147483647\n[functions.fetch]\nmax_in_flight = 1",
+        )
+        .unwrap();
+        assert!(generate_bindings(&config, &ci).is_ok());
+    }
+
+    #[test]
+    fn coalesced_errors_cant_hold_handles() {
+        let mut group = test_group();
+        group.add_item(Metadata::Object(ObjectMetadata {
+            module_path: "test".to_string(),
+            name: "Session".to_string(),
+            remote: false,
+            imp: ObjectImpl::Struct,
+            docstring: None,
+        }));
+        group.add_item(Metadata::Enum(EnumMetadata {
+            module_path: "test".to_string(),
+            name: "LookupError".to_string(),
+            shape: EnumShape::Error { flat: false },
+            remote: false,
+            variants: vec![VariantMetadata {
+                name: "Busy".to_string(),
+                discr: None,
+                fields: vec![FieldMetadata {
+                    name: "session".to_string(),
+                    ty: Type::Object {
+                        module_path: "test".to_string(),
+                        name: "Session".to_string(),
+                        imp: ObjectImpl::Struct,
+                    },
+                    default: None,
+                    docstring: None,
+                }],
+                docstring: None,
+            }],
+            discr_type: None,
+            non_exhaustive: false,
+            docstring: None,
+        }));
+        group.add_item(Metadata::Func(FnMetadata {
+            module_path: "test".to_string(),
+            name: "lookup".to_string(),
+            is_async: true,
+            inputs: vec![],
+            return_type: Some(Type::String),
+            throws: Some(Type::Enum {
+                module_path: "test".to_string(),
+                name: "LookupError".to_string(),
+            }),
+            checksum: None,
+            docstring: None,
+        }));
+        let mut ci = ComponentInterface::from_metadata(group).unwrap();
+        ci.derive_ffi_funcs().unwrap();
+
+        let config: Config = toml::from_str("[functions.lookup]\ncoalesce = true").unwrap();
+        let err = generate_bindings(&config, &ci).unwrap_err();
+        assert!(
+            err.to_string().contains("`lookup`") && err.to_string().contains("its error"),
+            "errors with object handles can't be shared: {err}"
+        );
+    }
 }
@@ -4,7 +4,7 @@ public final class UniffiAsyncHelpers {
     // Async return type handlers
     static final byte UNIFFI_RUST_FUTURE_POLL_READY = (byte) 0;
     static final byte UNIFFI_RUST_FUTURE_POLL_WAKE = (byte) 1;
-    static final UniffiHandleMap<java.util.concurrent.CompletableFuture<java.lang.Byte>> uniffiContinuationHandleMap = new UniffiHandleMap<>();
+    static final UniffiHandleMap<UniffiContinuation> uniffiContinuationHandleMap = new UniffiHandleMap<>();
     static final UniffiHandleMap<CancelableForeignFuture> uniffiForeignFutureHandleMap = new UniffiHandleMap<>();
 
     // Singleton upcall stub for the continuation callback, created once and reused
@@ -24,9 +24,103 @@ public final class UniffiAsyncHelpers {
         }
     }
 
-    // The actual callback implementation invoked from native code
+    // Executors for the async overloads that don't take one, as configured by `async_executor`
+    // and `async_lift_executor`. Created on first use.
+    private static final class UniffiConfiguredExecutors {
+        static final java.util.concurrent.Executor POLL = uniffiNewExecutor("{{ config.async_executor() }}", "uniffi-async-");
+        {%- match config.async_lift_executor() %}
+        {%- when Some(lift_executor) %}
+        static final java.util.concurrent.Executor LIFT = uniffiNewExecutor("{{ lift_executor }}", "uniffi-async-lift-");
+        {%- when None %}
+        {%- endmatch %}
+    }
+
+    private static volatile java.util.concurrent.Executor pollExecutorOverride;
+    private static volatile java.util.concurrent.Executor liftExecutorOverride;
+
+    // Passed by the overloads that don't take an executor, so each call picks up the defaults
+    // as they are when it starts.
+    static final java.util.concurrent.Executor UNIFFI_DEFAULT_EXECUTOR = task -> uniffiPollExecutor().execute(task);
+
+    /**
+     * Sets the executor used to poll async calls and lift their results when the caller doesn't
+     * pass one. It must not run tasks on the calling thread. {@code null} goes back to the
+     * configured default.
+     */
+    public static void setDefaultExecutor(java.util.concurrent.Executor executor) {
+        pollExecutorOverride = executor;
+        liftExecutorOverride = executor;
+    }
+
+    /**
+     * Sets the executor used to poll async calls when the caller doesn't pass one. It must not run
+     * tasks on the calling thread. Results are lifted on it too, unless a separate lift executor
+     * is set or configured. {@code null} goes back to the configured default.
+     */
+    public static void setDefaultPollExecutor(java.util.concurrent.Executor executor) {
+        pollExecutorOverride = executor;
+    }
+
+    /**
+     * Sets the executor used to lift the results of async calls when the caller doesn't pass an
+     * executor, to keep expensive lifts off the poll executor. {@code null} goes back to the
+     * configured default.
+     */
+    public static void setDefaultLiftExecutor(java.util.concurrent.Executor executor) {
+        liftExecutorOverride = executor;
+    }
+
+    static java.util.concurrent.Executor uniffiPollExecutor() {
+        java.util.concurrent.Executor executor = pollExecutorOverride;
+        return executor != null ? executor : UniffiConfiguredExecutors.POLL;
+    }
+
+    static java.util.concurrent.Executor uniffiLiftExecutor() {
+        java.util.concurrent.Executor executor = liftExecutorOverride;
+        {%- if config.async_lift_executor().is_some() %}
+        return executor != null ? executor : UniffiConfiguredExecutors.LIFT;
+        {%- else %}
+        return executor != null ? executor : uniffiPollExecutor();
+        {%- endif %}
+    }
+
+    private static java.util.concurrent.Executor uniffiNewExecutor(java.lang.String kind, java.lang.String threadPrefix) {
+        switch (kind) {
+            case "dedicated": {
+                {%- match config.async_threads() %}
+                {%- when Some(threads) %}
+                int threads = {{ threads }};
+                {%- when None %}
+                int threads = java.lang.Runtime.getRuntime().availableProcessors();
+                {%- endmatch %}
+                java.util.concurrent.atomic.AtomicInteger count = new java.util.concurrent.atomic.AtomicInteger();
+                java.util.concurrent.ThreadPoolExecutor pool = new java.util.concurrent.ThreadPoolExecutor(
+                    threads, threads, 60L, java.util.concurrent.TimeUnit.SECONDS,
+                    new java.util.concurrent.LinkedBlockingQueue<>(),
+                    task -> {
+                        java.lang.Thread thread = new java.lang.Thread(task, threadPrefix + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                pool.allowCoreThreadTimeOut(true);
+                return pool;
+            }
+            {%- if !config.android() %}
+            case "virtual_threads":
+                return java.util.concurrent.Executors.newThreadPerTaskExecutor(
+                    java.lang.Thread.ofVirtual().name(threadPrefix, 1).factory());
+            {%- endif %}
+            case "direct":
+                return java.lang.Runnable::run;
+            default:
+                return java.util.concurrent.ForkJoinPool.commonPool();
+        }
+    }
+
+    // The actual callback implementation invoked from native code. A continuation keeps the
+    // same handle for every poll of its future, so this only looks it up.
     static void continuationCallback(long data, byte pollResult) {
-        uniffiContinuationHandleMap.remove(data).complete(pollResult);
+        uniffiContinuationHandleMap.get(data).resume(pollResult);
     }
 
     @FunctionalInterface
@@ -44,33 +138,265 @@ public final class UniffiAsyncHelpers {
         void apply(java.lang.foreign.SegmentAllocator allocator, long rustFuture, java.lang.foreign.MemorySegment status);
     }
 
-    static class UniffiFreeingFuture<T> extends java.util.concurrent.CompletableFuture<T> {
-        private java.util.function.Consumer<java.lang.Long> freeFunc;
-        private long rustFuture;
+    @FunctionalInterface
+    interface FreeFunction {
+        void apply(long rustFuture);
+    }
 
-        public UniffiFreeingFuture(long rustFuture, java.util.function.Consumer<java.lang.Long> freeFunc) {
-            this.freeFunc = freeFunc;
+    // Whatever is waiting on a Rust future; woken by Rust with the result of each poll.
+    interface UniffiContinuation {
+        void resume(byte pollResult);
+    }
+
+    // Drives one Rust future to completion, and is itself the future handed to the caller.
+    //
+    // It registers a single continuation handle for the life of the call. Each time Rust wakes
+    // it, it takes one hop onto the poll executor and either polls again or, once the Rust future
+    // is ready, completes it, frees it and lifts the result on that same hop (or hands the lift to
+    // a separate lift executor, if there is one). Every touch of the
+    // Rust future (poll, complete, free) happens under the poller's lock, so cancelling can't
+    // free the future while it's being polled or completed, and it's freed exactly once.
+    //
+    // If Rust wakes it during the first poll, on the calling thread, there's no hop at all: the
+    // future is completed, freed and lifted inline, and the caller gets an already-completed
+    // future back.
+    {%- if config.async_metrics() %}
+    //
+    // However the caller's future ends up completed, the call is recorded in its metrics once.
+    {%- endif %}
+    static final class UniffiRustFuturePoller<T, F, E extends java.lang.Exception> extends java.util.concurrent.CompletableFuture<T> implements UniffiContinuation, java.lang.Runnable {
+        private final long rustFuture;
+        private final PollingFunction pollFunc;
+        private final AsyncCompleteFunction<F> completeFunc;
+        private final FreeFunction freeFunc;
+        private final java.util.function.Function<F, T> liftFunc;
+        private final UniffiRustCallStatusErrorHandler<E> errorHandler;
+        private final java.util.concurrent.Executor pollExecutor;
+        private final java.util.concurrent.Executor liftExecutor;
+        private long continuationHandle;
+        // The poll result we were woken with. Handing `this` to the executor publishes it.
+        private byte pollResult;
+        // Set for the duration of the first poll. Only compared against the current thread, so
+        // a stale read from another thread can never match.
+        private java.lang.Thread startingThread;
+        private boolean resumedInline;
+        // Guarded by `this`.
+        private boolean freed;
+        private boolean registered;
+        {%- if config.async_metrics() %}
+        private final UniffiAsyncMetrics metrics;
+        private final long startedAt;
+        // Like pollResult, these are handed to the thread that completes the call along with
+        // `this`. A cancelling thread may see stale values, but doesn't record them.
+        private int polls;
+        // When Rust last woke the future to be polled again, and when it woke it for the poll that
+        // found it ready, which is the same wake unless it was ready on the first poll.
+        private long lastWakeAt;
+        private long wokenAt;
+        {%- endif %}
+
+        UniffiRustFuturePoller(
+            {%- if config.async_metrics() %}
+            UniffiAsyncMetrics metrics,
+            {%- endif %}
+            java.util.concurrent.Executor pollExecutor,
+            java.util.concurrent.Executor liftExecutor,
+            long rustFuture,
+            PollingFunction pollFunc,
+            AsyncCompleteFunction<F> completeFunc,
+            FreeFunction freeFunc,
+            java.util.function.Function<F, T> liftFunc,
+            UniffiRustCallStatusErrorHandler<E> errorHandler
+        ) {
+            this.pollExecutor = pollExecutor;
+            this.liftExecutor = liftExecutor;
             this.rustFuture = rustFuture;
+            this.pollFunc = pollFunc;
+            this.completeFunc = completeFunc;
+            this.freeFunc = freeFunc;
+            this.liftFunc = liftFunc;
+            this.errorHandler = errorHandler;
+            {%- if config.async_metrics() %}
+            this.metrics = metrics;
+            this.startedAt = metrics.start();
+            {%- endif %}
+        }
+
+        void start() {
+            try {
+                synchronized (this) {
+                    this.continuationHandle = uniffiContinuationHandleMap.insert(this);
+                    this.registered = true;
+                    this.startingThread = java.lang.Thread.currentThread();
+                    try {
+                        {%- if config.async_metrics() %}
+                        this.polls++;
+                        {%- endif %}
+                        this.pollFunc.apply(this.rustFuture, CONTINUATION_CALLBACK_STUB, this.continuationHandle);
+                    } finally {
+                        this.startingThread = null;
+                    }
+                }
+            } catch (java.lang.Exception e) {
+                fail(e);
+                return;
+            }
+            if (this.resumedInline) {
+                // Usually ready already (a cache hit or a resolved value), so finish right here.
+                run();
+            }
+        }
+
+        // Called from the continuation upcall, so never touches the Rust future itself.
+        @Override
+        public void resume(byte pollResult) {
+            this.pollResult = pollResult;
+            {%- if config.async_metrics() %}
+            // Rust resumes once per poll, so a wake is always for the next poll, and READY comes
+            // from inside the poll that wake queued. Stamping the wake counts the time the poll
+            // waits for the executor.
+            if (pollResult == UNIFFI_RUST_FUTURE_POLL_READY) {
+                this.wokenAt = this.lastWakeAt != 0 ? this.lastWakeAt : java.lang.System.nanoTime();
+            } else {
+                this.lastWakeAt = java.lang.System.nanoTime();
+            }
+            {%- endif %}
+            if (this.startingThread == java.lang.Thread.currentThread()) {
+                // Woken from inside the first poll; start() picks it up once the poll returns.
+                this.resumedInline = true;
+                return;
+            }
+            try {
+                this.pollExecutor.execute(this);
+            } catch (java.lang.Exception e) {
+                // No poll is pending, so nothing else will touch the handle or the future. Rust
+                // holds the future's lock for this upcall though, so freeing it here would take
+                // that lock again. Free it from another thread, which waits for the upcall to
+                // return.
+                completeExceptionally(e);
+                java.lang.Thread releaser = new java.lang.Thread(() -> {
+                    synchronized (this) {
+                        free();
+                        unregister();
+                    }
+                }, "uniffi-future-free");
+                releaser.setDaemon(true);
+                releaser.start();
+            }
+        }
+
+        @Override
+        public void run() {
+            F result;
+            try {
+                synchronized (this) {
+                    if (this.freed) {
+                        // Cancelled. This was the wake for the poll that was in flight.
+                        unregister();
+                        return;
+                    }
+                    if (isDone()) {
+                        // Completed from outside, there's no one left to deliver a result to.
+                        free();
+                        unregister();
+                        return;
+                    }
+                    if (this.pollResult != UNIFFI_RUST_FUTURE_POLL_READY) {
+                        {%- if config.async_metrics() %}
+                        this.polls++;
+                        {%- endif %}
+                        this.pollFunc.apply(this.rustFuture, CONTINUATION_CALLBACK_STUB, this.continuationHandle);
+                        return;
+                    }
+                    try {
+                        result = uniffiCompleteRustFuture(this.completeFunc, this.rustFuture, this.errorHandler);
+                    } finally {
+                        free();
+                        unregister();
+                    }
+                }
+                if (this.liftExecutor == this.pollExecutor) {
+                    lift(result);
+                } else {
+                    F ready = result;
+                    this.liftExecutor.execute(() -> lift(ready));
+                }
+            } catch (java.lang.Exception e) {
+                fail(e);
+            }
+        }
+
+        private void lift(F result) {
+            try {
+                complete(this.liftFunc.apply(result));
+            } catch (java.lang.Exception e) {
+                completeExceptionally(e);
+            }
         }
 
-        // Cancellation calls freeFunc immediately, which frees the underlying Rust future.
-        // This races with the thenApplyAsync pipeline stage that calls completeFunc on
-        // the same handle. The pipeline guards against this with isCancelled() checks
-        // before touching the Rust future, but a narrow race window remains if cancel()
-        // fires after the check passes. This is safe in practice because uniffi's
-        // rust_future_free is idempotent (see the double-free and poll-after-free tests).
         @Override
-        public boolean cancel(boolean ignored) {
-            boolean cancelled = super.cancel(ignored);
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
             if (cancelled) {
-                freeFunc.accept(rustFuture);
+                {%- if config.async_metrics() %}
+                this.metrics.cancelled();
+                {%- endif %}
+                synchronized (this) {
+                    free();
+                }
             }
             return cancelled;
         }
+        {%- if config.async_metrics() %}
+
+        @Override
+        public boolean complete(T value) {
+            long completedAt = java.lang.System.nanoTime();
+            boolean completed = super.complete(value);
+            if (completed) {
+                this.metrics.completed(this.startedAt, this.wokenAt, this.polls, completedAt, false);
+            }
+            return completed;
+        }
+
+        @Override
+        public boolean completeExceptionally(java.lang.Throwable e) {
+            long completedAt = java.lang.System.nanoTime();
+            boolean completed = super.completeExceptionally(e);
+            if (completed) {
+                this.metrics.completed(this.startedAt, this.wokenAt, this.polls, completedAt, true);
+            }
+            return completed;
+        }
+        {%- endif %}
+
+        // Must hold the lock.
+        private void free() {
+            if (!this.freed) {
+                this.freed = true;
+                this.freeFunc.apply(this.rustFuture);
+            }
+        }
+
+        // Must hold the lock.
+        private void unregister() {
+            if (this.registered) {
+                this.registered = false;
+                uniffiContinuationHandleMap.remove(this.continuationHandle);
+            }
+        }
+
+        private void fail(java.lang.Exception e) {
+            synchronized (this) {
+                free();
+                unregister();
+            }
+            completeExceptionally(e);
+        }
     }
 
-    // Helper so both the Java completable future and the job that handles it finishing and
-    // reports to Rust can be retrieved (and potentially cancelled) by handle.
+    // Helper so both the Java completable future and the job that reports it finishing to Rust
+    // can be retrieved (and potentially cancelled) by handle.
     static class CancelableForeignFuture {
         private java.util.concurrent.CompletableFuture<?> childFuture;
         private java.util.concurrent.CompletableFuture<java.lang.Void> childFutureHandler;
@@ -81,138 +407,397 @@ public final class UniffiAsyncHelpers {
         }
 
         public void cancel() {
-            var successfullyCancelled = this.childFutureHandler.cancel(true);
-            if(successfullyCancelled) {
+            // Once the handler has run, Rust already has its result. Otherwise cancelling the
+            // Java future runs the handler, which reports the cancellation to Rust.
+            if (!this.childFutureHandler.isDone()) {
                 childFuture.cancel(true);
             }
         }
     }
 
+    // Parks the thread driving a blocking call until Rust wakes it.
+    static final class UniffiRustFutureParker implements UniffiContinuation {
+        static final byte PENDING = (byte) -1;
+
+        private final java.lang.Thread thread;
+        volatile byte pollResult = PENDING;
+        {%- if config.async_metrics() %}
+        // Only touched by the parked thread, except for `wokenAt`, which is published by the
+        // write to `pollResult` that follows it.
+        int polls;
+        long wokenAt;
+        {%- endif %}
+
+        UniffiRustFutureParker(java.lang.Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        public void resume(byte pollResult) {
+            {%- if config.async_metrics() %}
+            // A wake is for the next poll, like in UniffiRustFuturePoller.
+            if (pollResult != UNIFFI_RUST_FUTURE_POLL_READY) {
+                this.wokenAt = java.lang.System.nanoTime();
+            }
+            {%- endif %}
+            this.pollResult = pollResult;
+            java.util.concurrent.locks.LockSupport.unpark(this.thread);
+        }
+    }
+
+    static <F, E extends java.lang.Exception> F uniffiCompleteRustFuture(
+        AsyncCompleteFunction<F> completeFunc,
+        long rustFuture,
+        UniffiRustCallStatusErrorHandler<E> errorHandler
+    ) throws E {
+        java.lang.foreign.MemorySegment status = UniffiHelpers.uniffiCallStatus();
+        try {
+            F result = completeFunc.apply(UniffiHelpers.uniffiReturnAllocator(), rustFuture, status);
+            UniffiHelpers.uniffiCheckCallStatus(errorHandler, status);
+            return result;
+        } finally {
+            UniffiHelpers.uniffiReleaseCallStatus(status);
+        }
+    }
+
     static <T, F, E extends java.lang.Exception> java.util.concurrent.CompletableFuture<T> uniffiRustCallAsync(
+        {%- if config.async_metrics() %}
+        UniffiAsyncMetrics metrics,
+        {%- endif %}
         java.util.concurrent.Executor uniffiExecutor,
         long rustFuture,
         PollingFunction pollFunc,
         AsyncCompleteFunction<F> completeFunc,
-        java.util.function.Consumer<java.lang.Long> freeFunc,
+        FreeFunction freeFunc,
         java.util.function.Function<F, T> liftFunc,
         UniffiRustCallStatusErrorHandler<E> errorHandler
     ){
-        java.util.concurrent.CompletableFuture<T> future = new UniffiFreeingFuture<>(rustFuture, freeFunc);
-
-        java.util.concurrent.CompletableFuture<java.lang.Void> pollChain;
-        try {
-            pollChain = pollUntilReady(rustFuture, pollFunc, uniffiExecutor);
-        } catch (java.lang.Exception e) {
-            freeFunc.accept(rustFuture);
-            future.completeExceptionally(e);
-            return future;
+        UniffiRustFuturePoller<T, F, E> poller;
+        if (uniffiExecutor == UNIFFI_DEFAULT_EXECUTOR) {
+            poller = new UniffiRustFuturePoller<>({% if config.async_metrics() %}metrics, {% endif %}uniffiPollExecutor(), uniffiLiftExecutor(), rustFuture, pollFunc, completeFunc, freeFunc, liftFunc, errorHandler);
+        } else {
+            poller = new UniffiRustFuturePoller<>({% if config.async_metrics() %}metrics, {% endif %}uniffiExecutor, uniffiExecutor, rustFuture, pollFunc, completeFunc, freeFunc, liftFunc, errorHandler);
         }
-
-        pollChain.thenApplyAsync(ignored -> {
-            if (future.isCancelled()) {
-                return null;
-            }
-            try {
-                F result = UniffiHelpers.uniffiRustCallWithError(errorHandler, (_allocator, status) -> {
-                    return completeFunc.apply(_allocator, rustFuture, status);
-                });
-                return liftFunc.apply(result);
-            } catch (java.lang.Exception e) {
-                throw new java.util.concurrent.CompletionException(e);
-            }
-        }, uniffiExecutor).whenComplete((result, throwable) -> {
-            if (future.isCancelled()) {
-                return;
-            }
-            try {
-                // If we failed in the chain somewhere, now complete the future with the failure
-                if (throwable != null) {
-                    java.lang.Throwable cause = throwable;
-                    if (cause instanceof java.util.concurrent.CompletionException && cause.getCause() != null) {
-                        cause = cause.getCause();
-                    }
-                    future.completeExceptionally(cause);
-                } else {
-                    future.complete(result);
-                }
-            } finally {
-                freeFunc.accept(rustFuture);
-            }
-        });
-
-        return future;
+        poller.start();
+        return poller;
     }
 
-
     // Overload specifically for Void cases, which aren't within the Object type.
     // This is only necessary because of Java's lack of proper Any/Unit.
     static <E extends java.lang.Exception> java.util.concurrent.CompletableFuture<java.lang.Void> uniffiRustCallAsync(
+        {%- if config.async_metrics() %}
+        UniffiAsyncMetrics metrics,
+        {%- endif %}
         java.util.concurrent.Executor uniffiExecutor,
         long rustFuture,
         PollingFunction pollFunc,
         AsyncCompleteVoidFunction completeFunc,
-        java.util.function.Consumer<java.lang.Long> freeFunc,
+        FreeFunction freeFunc,
         java.lang.Runnable liftFunc,
         UniffiRustCallStatusErrorHandler<E> errorHandler
     ){
-        java.util.concurrent.CompletableFuture<java.lang.Void> future = new UniffiFreeingFuture<>(rustFuture, freeFunc);
+        return uniffiRustCallAsync(
+            {%- if config.async_metrics() %}
+            metrics,
+            {%- endif %}
+            uniffiExecutor,
+            rustFuture,
+            pollFunc,
+            (allocator, future, status) -> {
+                completeFunc.apply(allocator, future, status);
+                return null;
+            },
+            freeFunc,
+            (java.lang.Void nothing) -> {
+                liftFunc.run();
+                return null;
+            },
+            errorHandler
+        );
+    }
 
-        java.util.concurrent.CompletableFuture<java.lang.Void> pollChain;
+    // Drives a Rust future on the calling thread, parking it between polls, for the generated
+    // blocking variants of async functions. There's no executor or CompletableFuture involved.
+    // Interrupting the thread cancels the call, and the Rust future is always freed.
+    static <T, F, E extends java.lang.Exception> T uniffiRustCallBlocking(
+        {%- if config.async_metrics() %}
+        UniffiAsyncMetrics metrics,
+        {%- endif %}
+        long rustFuture,
+        PollingFunction pollFunc,
+        AsyncCompleteFunction<F> completeFunc,
+        FreeFunction freeFunc,
+        java.util.function.Function<F, T> liftFunc,
+        UniffiRustCallStatusErrorHandler<E> errorHandler
+    ) throws E, java.lang.InterruptedException {
+        UniffiRustFutureParker parker = new UniffiRustFutureParker(java.lang.Thread.currentThread());
+        {%- if config.async_metrics() %}
+        long startedAt = metrics.start();
+        T value;
         try {
-            pollChain = pollUntilReady(rustFuture, pollFunc, uniffiExecutor);
-        } catch (java.lang.Exception e) {
-            freeFunc.accept(rustFuture);
-            future.completeExceptionally(e);
-            return future;
+            value = uniffiDriveBlocking(parker, rustFuture, pollFunc, completeFunc, freeFunc, liftFunc, errorHandler);
+        } catch (java.lang.InterruptedException e) {
+            metrics.cancelled();
+            throw e;
+        } catch (java.lang.Throwable e) {
+            metrics.completed(startedAt, parker.wokenAt, parker.polls, java.lang.System.nanoTime(), true);
+            throw e;
         }
+        metrics.completed(startedAt, parker.wokenAt, parker.polls, java.lang.System.nanoTime(), false);
+        return value;
+    }
+
+    private static <T, F, E extends java.lang.Exception> T uniffiDriveBlocking(
+        UniffiRustFutureParker parker,
+        long rustFuture,
+        PollingFunction pollFunc,
+        AsyncCompleteFunction<F> completeFunc,
+        FreeFunction freeFunc,
+        java.util.function.Function<F, T> liftFunc,
+        UniffiRustCallStatusErrorHandler<E> errorHandler
+    ) throws E, java.lang.InterruptedException {
+        {%- endif %}
+        long continuationHandle = uniffiContinuationHandleMap.insert(parker);
+        // Whether Rust holds the continuation for the latest poll.
+        boolean polled = false;
+        F result;
+        try {
+            while (true) {
+                polled = false;
+                parker.pollResult = UniffiRustFutureParker.PENDING;
+                {%- if config.async_metrics() %}
+                parker.polls++;
+                {%- endif %}
+                pollFunc.apply(rustFuture, CONTINUATION_CALLBACK_STUB, continuationHandle);
+                polled = true;
+                while (parker.pollResult == UniffiRustFutureParker.PENDING) {
+                    if (java.lang.Thread.interrupted()) {
+                        throw new java.lang.InterruptedException();
+                    }
+                    java.util.concurrent.locks.LockSupport.park(parker);
+                }
+                if (parker.pollResult == UNIFFI_RUST_FUTURE_POLL_READY) {
+                    {%- if config.async_metrics() %}
+                    if (parker.wokenAt == 0) {
+                        // Ready on the first poll.
+                        parker.wokenAt = java.lang.System.nanoTime();
+                    }
+                    {%- endif %}
+                    break;
+                }
+            }
+            result = uniffiCompleteRustFuture(completeFunc, rustFuture, errorHandler);
+        } finally {
+            freeFunc.apply(rustFuture);
+            // Freeing cancels the Rust future, which wakes a poll that's still pending right
+            // away. Wait for that wake so the handle isn't removed out from under it.
+            boolean interrupted = false;
+            while (polled && parker.pollResult == UniffiRustFutureParker.PENDING) {
+                java.util.concurrent.locks.LockSupport.park(parker);
+                interrupted |= java.lang.Thread.interrupted();
+            }
+            uniffiContinuationHandleMap.remove(continuationHandle);
+            if (interrupted) {
+                java.lang.Thread.currentThread().interrupt();
+            }
+        }
+        return liftFunc.apply(result);
+    }
 
-        pollChain.<java.lang.Void>thenApplyAsync(ignored -> {
-            if (future.isCancelled()) {
+    // Overload for Void cases, see the matching `uniffiRustCallAsync`.
+    static <E extends java.lang.Exception> void uniffiRustCallBlocking(
+        {%- if config.async_metrics() %}
+        UniffiAsyncMetrics metrics,
+        {%- endif %}
+        long rustFuture,
+        PollingFunction pollFunc,
+        AsyncCompleteVoidFunction completeFunc,
+        FreeFunction freeFunc,
+        java.lang.Runnable liftFunc,
+        UniffiRustCallStatusErrorHandler<E> errorHandler
+    ) throws E, java.lang.InterruptedException {
+        uniffiRustCallBlocking(
+            {%- if config.async_metrics() %}
+            metrics,
+            {%- endif %}
+            rustFuture,
+            pollFunc,
+            (allocator, future, status) -> {
+                completeFunc.apply(allocator, future, status);
+                return null;
+            },
+            freeFunc,
+            (java.lang.Void nothing) -> {
+                liftFunc.run();
                 return null;
+            },
+            errorHandler
+        );
+    }
+
+    {%- if calls.has_async_limits() %}
+
+    // Starts the call once it gets through `limiter`, and completes the returned future with it.
+    // `newRustFuture` creates the Rust future from arguments lowered when the call was made, and
+    // a call that never starts frees it right away so Rust drops them.
+    static <T> java.util.concurrent.CompletableFuture<T> uniffiRustCallAsyncLimited(
+        UniffiAsyncLimiter limiter,
+        java.util.function.LongSupplier newRustFuture,
+        FreeFunction freeFunc,
+        java.util.function.LongFunction<java.util.concurrent.CompletableFuture<T>> startCall
+    ) {
+        UniffiAsyncLimiter.Call<T> call = new UniffiAsyncLimiter.Call<>(limiter, newRustFuture, freeFunc, startCall);
+        call.proceed(limiter);
+        return call;
+    }
+    {%- endif %}
+
+    {%- if calls.has_coalesced_calls() %}
+
+    // Arguments of a coalesced call, plus the function and receiver, compared by value. Arrays
+    // are compared by content.
+    static final class UniffiCoalescingKey {
+        private final java.lang.Object[] parts;
+        private final int hash;
+
+        UniffiCoalescingKey(java.lang.Object... parts) {
+            this.parts = parts;
+            this.hash = java.util.Arrays.deepHashCode(parts);
+        }
+
+        @Override
+        public boolean equals(java.lang.Object other) {
+            if (!(other instanceof UniffiCoalescingKey)) {
+                return false;
             }
-            try {
-                UniffiHelpers.uniffiRustCallWithError(errorHandler, (_allocator, status) -> {
-                    completeFunc.apply(_allocator, rustFuture, status);
-                });
-            } catch (java.lang.Exception e) {
-                throw new java.util.concurrent.CompletionException(e);
+            UniffiCoalescingKey key = (UniffiCoalescingKey) other;
+            return this.hash == key.hash && java.util.Arrays.deepEquals(this.parts, key.parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    private static final java.util.concurrent.ConcurrentHashMap<UniffiCoalescingKey, UniffiFlight<?>> uniffiFlights = new java.util.concurrent.ConcurrentHashMap<>();
+
+    // Joins the call in flight for `key`, or starts one. Every caller gets its own future,
+    // completed with the shared result, so cancelling one only drops that caller; the shared
+    // call (and its Rust future) is cancelled once every caller has cancelled.
+    @SuppressWarnings("unchecked")
+    static <T> java.util.concurrent.CompletableFuture<T> uniffiRustCallCoalesced(
+        UniffiCoalescingKey key,
+        java.util.function.Supplier<java.util.concurrent.CompletableFuture<T>> startCall
+    ) {
+        while (true) {
+            UniffiFlight<T> flight = new UniffiFlight<>(key);
+            UniffiFlight<T> existing = (UniffiFlight<T>) uniffiFlights.putIfAbsent(key, flight);
+            if (existing == null) {
+                UniffiFlightWaiter<T> waiter = flight.join();
+                flight.start(startCall);
+                return waiter;
             }
-            return null;
-        }, uniffiExecutor).whenComplete((result, throwable) -> {
-            if (future.isCancelled()) {
-                return;
+            UniffiFlightWaiter<T> waiter = existing.join();
+            if (waiter != null) {
+                return waiter;
+            }
+            // That flight just finished or was abandoned; it's on its way out of the map.
+            uniffiFlights.remove(key, existing);
+        }
+    }
+
+    // One shared call and the callers waiting on it.
+    static final class UniffiFlight<T> {
+        private final UniffiCoalescingKey key;
+        // Guarded by `this`.
+        private final java.util.List<UniffiFlightWaiter<T>> waiters = new java.util.ArrayList<>();
+        private boolean closed;
+        private java.util.concurrent.CompletableFuture<T> shared;
+
+        UniffiFlight(UniffiCoalescingKey key) {
+            this.key = key;
+        }
+
+        // Returns null once the flight no longer takes new callers.
+        synchronized UniffiFlightWaiter<T> join() {
+            if (this.closed) {
+                return null;
             }
+            UniffiFlightWaiter<T> waiter = new UniffiFlightWaiter<>(this);
+            this.waiters.add(waiter);
+            return waiter;
+        }
+
+        void start(java.util.function.Supplier<java.util.concurrent.CompletableFuture<T>> startCall) {
+            java.util.concurrent.CompletableFuture<T> shared;
             try {
-                // If we failed in the chain somewhere, now complete the future with the failure
-                if (throwable != null) {
-                    java.lang.Throwable cause = throwable;
-                    if (cause instanceof java.util.concurrent.CompletionException && cause.getCause() != null) {
-                        cause = cause.getCause();
-                    }
-                    future.completeExceptionally(cause);
+                shared = startCall.get();
+            } catch (java.lang.Throwable e) {
+                finish(null, e);
+                return;
+            }
+            boolean abandoned;
+            synchronized (this) {
+                this.shared = shared;
+                abandoned = this.closed && this.waiters.isEmpty();
+            }
+            if (abandoned) {
+                shared.cancel(true);
+            }
+            shared.whenComplete(this::finish);
+        }
+
+        private void finish(T result, java.lang.Throwable e) {
+            uniffiFlights.remove(this.key, this);
+            java.util.List<UniffiFlightWaiter<T>> waiting;
+            synchronized (this) {
+                this.closed = true;
+                waiting = new java.util.ArrayList<>(this.waiters);
+                this.waiters.clear();
+            }
+            for (UniffiFlightWaiter<T> waiter : waiting) {
+                if (e != null) {
+                    waiter.completeExceptionally(e);
                 } else {
-                    future.complete(null);
+                    waiter.complete(result);
                 }
-            } finally {
-                freeFunc.accept(rustFuture);
             }
-        });
+        }
 
-        return future;
+        void leave(UniffiFlightWaiter<T> waiter) {
+            java.util.concurrent.CompletableFuture<T> cancel;
+            synchronized (this) {
+                if (this.closed || !this.waiters.remove(waiter) || !this.waiters.isEmpty()) {
+                    return;
+                }
+                this.closed = true;
+                cancel = this.shared;
+            }
+            uniffiFlights.remove(this.key, this);
+            if (cancel != null) {
+                cancel.cancel(true);
+            }
+        }
     }
 
-    private static java.util.concurrent.CompletableFuture<java.lang.Void> pollUntilReady(long rustFuture, PollingFunction pollFunc, java.util.concurrent.Executor uniffiExecutor) {
-        java.util.concurrent.CompletableFuture<java.lang.Byte> pollFuture = new java.util.concurrent.CompletableFuture<>();
-        var handle = uniffiContinuationHandleMap.insert(pollFuture);
-        pollFunc.apply(rustFuture, CONTINUATION_CALLBACK_STUB, handle);
-        return pollFuture.thenComposeAsync(pollResult -> {
-            if (pollResult == UNIFFI_RUST_FUTURE_POLL_READY) {
-                return java.util.concurrent.CompletableFuture.completedFuture(null);
-            } else {
-                return pollUntilReady(rustFuture, pollFunc, uniffiExecutor);
+    static final class UniffiFlightWaiter<T> extends java.util.concurrent.CompletableFuture<T> {
+        private final UniffiFlight<T> flight;
+
+        UniffiFlightWaiter(UniffiFlight<T> flight) {
+            this.flight = flight;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                this.flight.leave(this);
             }
-        }, uniffiExecutor);
+            return cancelled;
+        }
     }
+    {%- endif %}
 
     {%- if ci.has_async_callback_interface_definition() %}
     static <T> void uniffiTraitInterfaceCallAsync(
@@ -227,33 +812,37 @@ public final class UniffiAsyncHelpers {
 
         // Upcall parameter segments have zero size; reinterpret to actual struct size
         uniffiOutDroppedCallback = uniffiOutDroppedCallback.reinterpret({{ "ForeignFutureDroppedCallbackStruct"|ffi_struct_name }}.LAYOUT.byteSize());
+        {%- if config.async_metrics() %}
+        long startedAt = java.lang.System.nanoTime();
+        {%- endif %}
         var foreignFutureCf = makeCall.get();
-        java.util.concurrent.CompletableFuture<java.lang.Void> ffHandler = java.util.concurrent.CompletableFuture.supplyAsync(() -> {
+        {%- if config.async_metrics() %}
+        UniffiAsyncMetrics.FOREIGN_FUTURES.start();
+        {%- endif %}
+        // The result is reported to Rust by whichever thread completes the Java future, so no
+        // thread is tied up waiting for it.
+        java.util.concurrent.CompletableFuture<java.lang.Void> ffHandler = foreignFutureCf.handle((callResult, e) -> {
+            {%- if config.async_metrics() %}
+            UniffiAsyncMetrics.FOREIGN_FUTURES.foreignFutureCompleted(startedAt, e);
+            {%- endif %}
             // Note: it's important we call either `handleSuccess` or `handleError` exactly once.
             // Each call consumes an Arc reference, which means there should be no possibility of
-            // a double call. The following code is structured so that we will never call both
-            // `handleSuccess` and `handleError`, even in the face of weird exceptions.
+            // a double call. A `handle` action runs at most once, and calls exactly one of them,
+            // even in the face of weird exceptions.
             //
             // In extreme circumstances we may not call either, for example if we fail to invoke
             // `handleSuccess`. This means we will leak the Arc reference, which is
             // better than double-freeing it.
-            T callResult;
-            try {
-                callResult = foreignFutureCf.get();
-            } catch(java.lang.Throwable e) {
-                // If we errored inside the CF, it's that error we want to send to Rust, not the wrapper
-                if (e instanceof java.util.concurrent.ExecutionException) {
-                    e = e.getCause();
-                }
+            if (e != null) {
                 handleError.accept(
                     UniffiRustCallStatus.create(
                         UniffiRustCallStatus.UNIFFI_CALL_UNEXPECTED_ERROR,
-                        {{ Type::String.borrow()|lower_fn(config, ci) }}(uniffiStackTraceToString(e))
+                        {{ Type::String.borrow()|lower_fn(config, ci) }}(uniffiStackTraceToString(uniffiUnwrapCompletion(e)))
                     )
                 );
-                return null;
+            } else {
+                handleSuccess.accept(callResult);
             }
-            handleSuccess.accept(callResult);
             return null;
         });
         long handle = uniffiForeignFutureHandleMap.insert(new CancelableForeignFuture(foreignFutureCf, ffHandler));
@@ -273,36 +862,39 @@ public final class UniffiAsyncHelpers {
     ){
         // Upcall parameter segments have zero size; reinterpret to actual struct size
         uniffiOutDroppedCallback = uniffiOutDroppedCallback.reinterpret({{ "ForeignFutureDroppedCallbackStruct"|ffi_struct_name }}.LAYOUT.byteSize());
+        {%- if config.async_metrics() %}
+        long startedAt = java.lang.System.nanoTime();
+        {%- endif %}
         var foreignFutureCf = makeCall.get();
-        java.util.concurrent.CompletableFuture<java.lang.Void> ffHandler = java.util.concurrent.CompletableFuture.supplyAsync(() -> {
-            // See the note in uniffiTraitInterfaceCallAsync for details on `handleSuccess` and
+        {%- if config.async_metrics() %}
+        UniffiAsyncMetrics.FOREIGN_FUTURES.start();
+        {%- endif %}
+        java.util.concurrent.CompletableFuture<java.lang.Void> ffHandler = foreignFutureCf.handle((callResult, e) -> {
+            {%- if config.async_metrics() %}
+            UniffiAsyncMetrics.FOREIGN_FUTURES.foreignFutureCompleted(startedAt, e);
+            {%- endif %}
+            // See the notes in uniffiTraitInterfaceCallAsync for details on `handleSuccess` and
             // `handleError`.
-            T callResult;
-            try {
-                callResult = foreignFutureCf.get();
-            } catch (java.lang.Throwable e) {
-                // If we errored inside the CF, it's that error we want to send to Rust, not the wrapper
-                if (e instanceof java.util.concurrent.ExecutionException) {
-                    e = e.getCause();
-                }
-                if (errorClass.isInstance(e)) {
+            if (e != null) {
+                java.lang.Throwable cause = uniffiUnwrapCompletion(e);
+                if (errorClass.isInstance(cause)) {
                     handleError.accept(
                         UniffiRustCallStatus.create(
                             UniffiRustCallStatus.UNIFFI_CALL_ERROR,
-                            lowerError.apply((E) e)
+                            lowerError.apply((E) cause)
                         )
                     );
                 } else {
                     handleError.accept(
                         UniffiRustCallStatus.create(
                             UniffiRustCallStatus.UNIFFI_CALL_UNEXPECTED_ERROR,
-                            {{ Type::String.borrow()|lower_fn(config, ci) }}(uniffiStackTraceToString(e))
+                            {{ Type::String.borrow()|lower_fn(config, ci) }}(uniffiStackTraceToString(cause))
                         )
                     );
                 }
-                return null;
+            } else {
+                handleSuccess.accept(callResult);
             }
-            handleSuccess.accept(callResult);
             return null;
         });
 
@@ -311,6 +903,15 @@ public final class UniffiAsyncHelpers {
         {{ "ForeignFutureDroppedCallbackStruct"|ffi_struct_name }}.setfree(uniffiOutDroppedCallback, FOREIGN_FUTURE_DROPPED_CALLBACK_STUB);
     }
 
+    // If we errored inside a dependent stage of the CF, it's that error we want to send to Rust,
+    // not the wrapper.
+    private static java.lang.Throwable uniffiUnwrapCompletion(java.lang.Throwable e) {
+        if (e instanceof java.util.concurrent.CompletionException && e.getCause() != null) {
+            return e.getCause();
+        }
+        return e;
+    }
+
     // Singleton upcall stub for foreign future dropped callback
     private static final java.lang.foreign.MemorySegment FOREIGN_FUTURE_DROPPED_CALLBACK_STUB;
     static {
@@ -350,4 +951,781 @@ public final class UniffiAsyncHelpers {
     }
 }
 
+package {{ config.package_name() }};
+
+/**
+ * Runs a batch of async calls, such as one per shard, and joins them.
+ *
+ * <p>Calls are started with {@link #submit}, which hands them the batch's executor. The wakes of
+ * every call in the batch go into one queue, drained by a single task on the underlying executor,
+ * so a burst of wakes costs one executor hop rather than one per call. {@link #all()} completes
+ * with every result, in submission order, or fails with the first error and cancels the calls
+ * still running, which frees their Rust futures.
+ *
+ * <pre>{@code
+ * UniffiAsyncBatch<Shard> batch = new UniffiAsyncBatch<>();
+ * for (int i = 0; i < shards; i++) {
+ *     int shard = i;
+ *     batch.submit(executor -> Store.fetch(shard, executor));
+ * }
+ * java.util.List<Shard> results = batch.all().get();
+ * }</pre>
+ *
+ * <p>The queue is drained by one thread at a time, so results in a batch are lifted one after
+ * another.
+ */
+public final class UniffiAsyncBatch<T> {
+    private final java.util.concurrent.Executor executor;
+    private final java.util.function.BiConsumer<java.lang.Integer, ? super T> onResult;
+    private final java.util.concurrent.ConcurrentLinkedQueue<java.lang.Runnable> queue = new java.util.concurrent.ConcurrentLinkedQueue<>();
+    // Tasks queued since the drain last caught up; the drain is scheduled when this leaves 0.
+    private final java.util.concurrent.atomic.AtomicInteger queued = new java.util.concurrent.atomic.AtomicInteger();
+    private final java.util.concurrent.Executor shared = this::enqueue;
+    private final java.util.concurrent.CompletableFuture<java.util.List<T>> all = new java.util.concurrent.CompletableFuture<>();
+    // Guarded by `this`.
+    private final java.util.List<java.util.concurrent.CompletableFuture<? extends T>> calls = new java.util.ArrayList<>();
+    private final java.util.List<T> results = new java.util.ArrayList<>();
+    private int remaining;
+    private boolean joined;
+
+    /** A batch drained on the default executor for async calls. */
+    public UniffiAsyncBatch() {
+        this(UniffiAsyncHelpers.UNIFFI_DEFAULT_EXECUTOR, null);
+    }
 
+    /** A batch drained on {@code executor}. */
+    public UniffiAsyncBatch(java.util.concurrent.Executor executor) {
+        this(executor, null);
+    }
+
+    /**
+     * A batch drained on {@code executor} that also hands each result to {@code onResult}, with
+     * the index of its call, as soon as it's ready. {@code onResult} is called from whichever
+     * thread completes the call, and not at all once the batch has failed.
+     */
+    public UniffiAsyncBatch(
+        java.util.concurrent.Executor executor,
+        java.util.function.BiConsumer<java.lang.Integer, ? super T> onResult
+    ) {
+        this.executor = executor;
+        this.onResult = onResult;
+        this.all.whenComplete((results, e) -> {
+            if (e != null) {
+                cancelRunning();
+            }
+        });
+    }
+
+    /**
+     * Starts a call in the batch. {@code call} gets the executor to pass to the async function or
+     * method it calls, and should return that function's future as it is: cancelling a future
+     * derived from it doesn't reach the Rust future. Returns the call's own future.
+     *
+     * @throws java.lang.IllegalStateException if {@link #all()} was called already
+     */
+    public <R extends T> java.util.concurrent.CompletableFuture<R> submit(
+        java.util.function.Function<java.util.concurrent.Executor, java.util.concurrent.CompletableFuture<R>> call
+    ) {
+        int index;
+        synchronized (this) {
+            if (this.joined) {
+                throw new java.lang.IllegalStateException("Calls can't be added once the batch is joined");
+            }
+            index = this.calls.size();
+            this.calls.add(null);
+            this.results.add(null);
+            this.remaining++;
+        }
+        java.util.concurrent.CompletableFuture<R> future;
+        try {
+            future = call.apply(this.shared);
+        } catch (java.lang.RuntimeException e) {
+            future = java.util.concurrent.CompletableFuture.failedFuture(e);
+        }
+        synchronized (this) {
+            this.calls.set(index, future);
+        }
+        if (this.all.isDone()) {
+            // The batch failed before this call was added, so cancelRunning() didn't see it.
+            future.cancel(true);
+        }
+        future.whenComplete((result, e) -> completed(index, result, e));
+        return future;
+    }
+
+    /**
+     * Joins the batch: the returned future completes with the result of every call, in the order
+     * they were submitted, or fails with the first error. On failure, or if it's cancelled, the
+     * calls still running are cancelled.
+     */
+    public java.util.concurrent.CompletableFuture<java.util.List<T>> all() {
+        boolean done;
+        synchronized (this) {
+            this.joined = true;
+            done = this.remaining == 0;
+        }
+        if (done) {
+            finish();
+        }
+        return this.all;
+    }
+
+    private void completed(int index, T result, java.lang.Throwable e) {
+        if (e != null) {
+            if (e instanceof java.util.concurrent.CompletionException && e.getCause() != null) {
+                e = e.getCause();
+            }
+            this.all.completeExceptionally(e);
+            return;
+        }
+        if (this.onResult != null && !this.all.isDone()) {
+            try {
+                this.onResult.accept(index, result);
+            } catch (java.lang.RuntimeException callbackError) {
+                this.all.completeExceptionally(callbackError);
+                return;
+            }
+        }
+        boolean done;
+        synchronized (this) {
+            this.results.set(index, result);
+            this.remaining--;
+            done = this.joined && this.remaining == 0;
+        }
+        if (done) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        java.util.List<T> results;
+        synchronized (this) {
+            results = java.util.Collections.unmodifiableList(new java.util.ArrayList<>(this.results));
+        }
+        this.all.complete(results);
+    }
+
+    private void cancelRunning() {
+        java.util.List<java.util.concurrent.CompletableFuture<? extends T>> running;
+        synchronized (this) {
+            running = new java.util.ArrayList<>(this.calls);
+        }
+        for (java.util.concurrent.CompletableFuture<? extends T> call : running) {
+            if (call != null) {
+                call.cancel(true);
+            }
+        }
+    }
+
+    // The executor handed to calls in the batch.
+    private void enqueue(java.lang.Runnable task) {
+        this.queue.add(task);
+        if (this.queued.getAndIncrement() == 0) {
+            try {
+                this.executor.execute(this::drain);
+            } catch (java.lang.RuntimeException e) {
+                // The caller fails its call. Anything else in the queue runs with the next drain.
+                this.queued.set(0);
+                throw e;
+            }
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        do {
+            java.lang.Runnable task;
+            while ((task = this.queue.poll()) != null) {
+                try {
+                    task.run();
+                } catch (java.lang.Throwable e) {
+                    this.all.completeExceptionally(e);
+                }
+            }
+            missed = this.queued.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
+{%- if calls.has_async_limits() %}
+
+package {{ config.package_name() }};
+
+/**
+ * Limits how many async calls are in flight at once, configured with {@code async_max_in_flight}
+ * for the whole component and {@code max_in_flight} for single functions and methods. A call to a
+ * function with its own limit has to get through that limit and then the component's.
+ *
+ * <p>Calls over a limit either wait in a queue, without creating their Rust future, or fail with
+ * {@link UniffiAsyncLimitExceededException}, as selected by {@code async_limit_policy}.
+ */
+public final class UniffiAsyncLimiter {
+    {%- match config.async_max_in_flight() %}
+    {%- when Some(limit) %}
+    static final UniffiAsyncLimiter COMPONENT = new UniffiAsyncLimiter("{{ ci.namespace() }}", {{ limit }}, null);
+    {%- when None %}
+    {%- endmatch %}
+    {%- let function_limits = calls.async_function_limits() %}
+    {%- for limit in function_limits %}
+    static final UniffiAsyncLimiter {{ limit.field }} = new UniffiAsyncLimiter("{{ limit.name }}", {{ limit.limit }}, {% if config.async_max_in_flight().is_some() %}COMPONENT{% else %}null{% endif %});
+    {%- endfor %}
+
+    private static final java.util.List<UniffiAsyncLimiter> ALL = java.util.List.of(
+        {%- if config.async_max_in_flight().is_some() %}
+        COMPONENT{% if !function_limits.is_empty() %},{% endif %}
+        {%- endif %}
+        {%- for limit in function_limits %}
+        {{ limit.field }}{% if !loop.last %},{% endif %}
+        {%- endfor %}
+    );
+
+    private final java.lang.String name;
+    private final int limit;
+    // Limiter the call goes through next, once it has a permit from this one.
+    private final UniffiAsyncLimiter parent;
+    private final java.util.concurrent.atomic.AtomicInteger inFlight = new java.util.concurrent.atomic.AtomicInteger();
+    private final java.util.concurrent.atomic.AtomicInteger queued = new java.util.concurrent.atomic.AtomicInteger();
+    private final java.util.concurrent.ConcurrentLinkedQueue<Call<?>> waiting = new java.util.concurrent.ConcurrentLinkedQueue<>();
+    // Serializes drain(), so a call finishing inside it only bumps this instead of recursing.
+    private final java.util.concurrent.atomic.AtomicInteger draining = new java.util.concurrent.atomic.AtomicInteger();
+
+    private UniffiAsyncLimiter(java.lang.String name, int limit, UniffiAsyncLimiter parent) {
+        this.name = name;
+        this.limit = limit;
+        this.parent = parent;
+    }
+
+    /** All of the component's limiters, the component-wide one first. */
+    public static java.util.List<UniffiAsyncLimiter> all() {
+        return ALL;
+    }
+
+    /** The component name, or the function name as configured in {@code functions}. */
+    public java.lang.String name() {
+        return this.name;
+    }
+
+    public int limit() {
+        return this.limit;
+    }
+
+    /** Calls holding a permit from this limiter. */
+    public int inFlight() {
+        return this.inFlight.get();
+    }
+
+    /** Calls waiting for a permit from this limiter. Includes cancelled calls not yet reached. */
+    public int queued() {
+        return this.queued.get();
+    }
+
+    @Override
+    public java.lang.String toString() {
+        return "UniffiAsyncLimiter[" + this.name + ", inFlight=" + inFlight() + "/" + this.limit + ", queued=" + queued() + "]";
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = this.inFlight.get();
+            if (current >= this.limit) {
+                return false;
+            }
+            if (this.inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release() {
+        this.inFlight.decrementAndGet();
+        drain();
+    }
+
+    private void enqueue(Call<?> call) {
+        this.queued.incrementAndGet();
+        this.waiting.add(call);
+        // A permit may have been released between the failed tryAcquire and the add.
+        drain();
+    }
+
+    // Hands free permits to waiting calls, in order.
+    private void drain() {
+        if (this.draining.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            while (!this.waiting.isEmpty() && tryAcquire()) {
+                Call<?> next = this.waiting.poll();
+                if (next == null) {
+                    this.inFlight.decrementAndGet();
+                    break;
+                }
+                this.queued.decrementAndGet();
+                next.proceed(this.parent);
+            }
+        } while (this.draining.decrementAndGet() != 0);
+    }
+
+    // An async call going through one or more limiters, and the future handed to the caller.
+    static final class Call<T> extends java.util.concurrent.CompletableFuture<T> {
+        private final UniffiAsyncLimiter first;
+        private final java.util.function.LongSupplier newRustFuture;
+        private final UniffiAsyncHelpers.FreeFunction freeFunc;
+        private final java.util.function.LongFunction<java.util.concurrent.CompletableFuture<T>> startCall;
+        private volatile java.util.concurrent.CompletableFuture<T> started;
+
+        Call(
+            UniffiAsyncLimiter first,
+            java.util.function.LongSupplier newRustFuture,
+            UniffiAsyncHelpers.FreeFunction freeFunc,
+            java.util.function.LongFunction<java.util.concurrent.CompletableFuture<T>> startCall
+        ) {
+            this.first = first;
+            this.newRustFuture = newRustFuture;
+            this.freeFunc = freeFunc;
+            this.startCall = startCall;
+        }
+
+        // Gets permits from `limiter` and the limiters above it, holding the ones before it,
+        // then starts the call. Waits in the queue of the first limiter that's full.
+        void proceed(UniffiAsyncLimiter limiter) {
+            while (limiter != null) {
+                if (isDone()) {
+                    // Cancelled while it was queued.
+                    releaseUntil(limiter);
+                    discard();
+                    return;
+                }
+                if (!limiter.tryAcquire()) {
+                    {%- if config.async_limit_fails_fast() %}
+                    releaseUntil(limiter);
+                    discard();
+                    completeExceptionally(new UniffiAsyncLimitExceededException(limiter));
+                    {%- else %}
+                    limiter.enqueue(this);
+                    {%- endif %}
+                    return;
+                }
+                limiter = limiter.parent;
+            }
+            start();
+        }
+
+        private void start() {
+            if (isDone()) {
+                releaseUntil(null);
+                discard();
+                return;
+            }
+            java.util.concurrent.CompletableFuture<T> started;
+            try {
+                started = this.startCall.apply(this.newRustFuture.getAsLong());
+            } catch (java.lang.Throwable e) {
+                releaseUntil(null);
+                completeExceptionally(e);
+                return;
+            }
+            this.started = started;
+            started.whenComplete((result, e) -> {
+                releaseUntil(null);
+                if (e != null) {
+                    completeExceptionally(e);
+                } else {
+                    complete(result);
+                }
+            });
+            if (isCancelled()) {
+                started.cancel(false);
+            }
+        }
+
+        // For a call that won't start: the lowered arguments belong to Rust now, so hand them to
+        // a Rust future and free it unpolled, which drops them.
+        private void discard() {
+            try {
+                this.freeFunc.apply(this.newRustFuture.getAsLong());
+            } catch (java.lang.Throwable e) {
+                // The call is already cancelled or failed, there's no one to report this to.
+            }
+        }
+
+        // Gives back the permits held from `first` up to, but not including, `limiter`.
+        private void releaseUntil(UniffiAsyncLimiter limiter) {
+            for (UniffiAsyncLimiter held = this.first; held != limiter; held = held.parent) {
+                held.release();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            java.util.concurrent.CompletableFuture<T> started = this.started;
+            if (cancelled && started != null) {
+                started.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+    }
+}
+
+package {{ config.package_name() }};
+
+/**
+ * Thrown, through the returned future, by an async call that's over its in-flight limit when
+ * {@code async_limit_policy = "fail"}.
+ */
+public class UniffiAsyncLimitExceededException extends java.lang.RuntimeException {
+    private final java.lang.String limiterName;
+    private final int limit;
+
+    public UniffiAsyncLimitExceededException(UniffiAsyncLimiter limiter) {
+        super(limiter.limit() + " async calls to " + limiter.name() + " are already in flight");
+        this.limiterName = limiter.name();
+        this.limit = limiter.limit();
+    }
+
+    /** Name of the limiter that was full. */
+    public java.lang.String limiterName() {
+        return this.limiterName;
+    }
+
+    public int limit() {
+        return this.limit;
+    }
+}
+{%- endif %}
+{%- if config.async_metrics() %}
+
+package {{ config.package_name() }};
+
+/**
+ * Counters and histograms for the component's async calls, recorded when {@code async_metrics} is
+ * enabled. There's one instance for each async function and method, which also counts calls to
+ * its blocking variant, and one for the futures that async callback interface methods hand back
+ * to Rust.
+ *
+ * <p>{@link #getCallNanos()} is the time from starting a call to its future completing.
+ * {@link #getWakeToCompletionNanos()} is the part of that after Rust last woke the call, for the
+ * poll that found it ready: waiting for the poll executor, polling and completing the Rust future
+ * and lifting the result. If call
+ * latency goes up but wake-to-completion doesn't, the time is spent in Rust; if both do, the Java
+ * executors are falling behind.
+ *
+ * <p>Every instance is an MXBean, see {@link #registerMBeans()}.
+ */
+public final class UniffiAsyncMetrics implements UniffiAsyncMetricsMXBean {
+    {%- let function_metrics = config.async_function_metrics(ci) %}
+    {%- for metrics in function_metrics %}
+    static final UniffiAsyncMetrics {{ metrics.field }} = new UniffiAsyncMetrics("{{ metrics.name }}");
+    {%- endfor %}
+    {%- if ci.has_async_callback_interface_definition() %}
+    static final UniffiAsyncMetrics FOREIGN_FUTURES = new UniffiAsyncMetrics("foreign futures");
+    {%- endif %}
+
+    private static final java.util.List<UniffiAsyncMetrics> ALL = java.util.List.of(
+        {%- for metrics in function_metrics %}
+        {{ metrics.field }}{% if !loop.last || ci.has_async_callback_interface_definition() %},{% endif %}
+        {%- endfor %}
+        {%- if ci.has_async_callback_interface_definition() %}
+        FOREIGN_FUTURES
+        {%- endif %}
+    );
+
+    private final java.lang.String name;
+    private final java.util.concurrent.atomic.LongAdder inFlight = new java.util.concurrent.atomic.LongAdder();
+    private final java.util.concurrent.atomic.LongAdder started = new java.util.concurrent.atomic.LongAdder();
+    private final java.util.concurrent.atomic.LongAdder completed = new java.util.concurrent.atomic.LongAdder();
+    private final java.util.concurrent.atomic.LongAdder failed = new java.util.concurrent.atomic.LongAdder();
+    private final java.util.concurrent.atomic.LongAdder cancelled = new java.util.concurrent.atomic.LongAdder();
+    private final Histogram callNanos = new Histogram();
+    private final Histogram wakeToCompletionNanos = new Histogram();
+    private final Histogram pollsPerCall = new Histogram();
+
+    private UniffiAsyncMetrics(java.lang.String name) {
+        this.name = name;
+    }
+
+    /** The metrics of every async function and method, ordered by FFI name, then foreign futures. */
+    public static java.util.List<UniffiAsyncMetrics> all() {
+        return ALL;
+    }
+    {%- if !config.android() %}
+
+    /**
+     * Registers every instance with the platform MBean server, named
+     * {@code {{ config.package_name() }}:type=UniffiAsyncMetrics,component={{ ci.namespace() }},name="<name>"}.
+     * Instances that are already registered are left as they are.
+     */
+    public static void registerMBeans() throws javax.management.JMException {
+        javax.management.MBeanServer server = java.lang.management.ManagementFactory.getPlatformMBeanServer();
+        for (UniffiAsyncMetrics metrics : ALL) {
+            javax.management.ObjectName objectName = new javax.management.ObjectName(
+                "{{ config.package_name() }}:type=UniffiAsyncMetrics,component={{ ci.namespace() }},name="
+                    + javax.management.ObjectName.quote(metrics.name));
+            try {
+                server.registerMBean(metrics, objectName);
+            } catch (javax.management.InstanceAlreadyExistsException e) {
+                // Registered already.
+            }
+        }
+    }
+    {%- endif %}
+
+    @Override
+    public java.lang.String getName() {
+        return this.name;
+    }
+
+    @Override
+    public long getInFlight() {
+        return this.inFlight.sum();
+    }
+
+    @Override
+    public long getStarted() {
+        return this.started.sum();
+    }
+
+    @Override
+    public long getCompleted() {
+        return this.completed.sum();
+    }
+
+    @Override
+    public long getFailed() {
+        return this.failed.sum();
+    }
+
+    @Override
+    public long getCancelled() {
+        return this.cancelled.sum();
+    }
+
+    @Override
+    public Histogram getCallNanos() {
+        return this.callNanos;
+    }
+
+    @Override
+    public Histogram getWakeToCompletionNanos() {
+        return this.wakeToCompletionNanos;
+    }
+
+    @Override
+    public Histogram getPollsPerCall() {
+        return this.pollsPerCall;
+    }
+
+    @Override
+    public void reset() {
+        this.started.reset();
+        this.completed.reset();
+        this.failed.reset();
+        this.cancelled.reset();
+        this.callNanos.reset();
+        this.wakeToCompletionNanos.reset();
+        this.pollsPerCall.reset();
+    }
+
+    @Override
+    public java.lang.String toString() {
+        return "UniffiAsyncMetrics[" + this.name + ", inFlight=" + getInFlight() + ", completed=" + getCompleted()
+            + ", failed=" + getFailed() + ", cancelled=" + getCancelled() + ", callNanos=" + this.callNanos
+            + ", wakeToCompletionNanos=" + this.wakeToCompletionNanos + "]";
+    }
+
+    // Returns the time the call started at.
+    long start() {
+        this.started.increment();
+        this.inFlight.increment();
+        return java.lang.System.nanoTime();
+    }
+
+    // A Rust future's call completed with a result or error. `wokenAt` is when Rust woke it for
+    // the poll that found it ready, or 0 if no poll did, and `polls` the number of times it was
+    // polled.
+    void completed(long startedAt, long wokenAt, int polls, long completedAt, boolean failed) {
+        this.inFlight.decrement();
+        (failed ? this.failed : this.completed).increment();
+        this.callNanos.record(completedAt - startedAt);
+        if (wokenAt != 0) {
+            this.wakeToCompletionNanos.record(completedAt - wokenAt);
+        }
+        this.pollsPerCall.record(polls);
+    }
+
+    void cancelled() {
+        this.inFlight.decrement();
+        this.cancelled.increment();
+    }
+    {%- if ci.has_async_callback_interface_definition() %}
+
+    // A future returned to Rust by a callback completed; `e` is its error, if any. It's
+    // cancelled when Rust dropped it first.
+    void foreignFutureCompleted(long startedAt, java.lang.Throwable e) {
+        long completedAt = java.lang.System.nanoTime();
+        this.inFlight.decrement();
+        java.lang.Throwable cause = e;
+        while (cause instanceof java.util.concurrent.CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof java.util.concurrent.CancellationException) {
+            this.cancelled.increment();
+            return;
+        }
+        (e != null ? this.failed : this.completed).increment();
+        this.callNanos.record(completedAt - startedAt);
+    }
+    {%- endif %}
+
+    /**
+     * A histogram of non-negative values. Each power of two is split into 8 buckets, so a
+     * percentile is at most 12.5% above the value it stands for. Values of 2^40 (about 18 minutes
+     * in nanoseconds) and more are counted as 2^40 - 1.
+     */
+    public static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final long MAX_VALUE = (1L << 40) - 1;
+        private static final int BUCKETS = bucket(MAX_VALUE) + 1;
+
+        private final java.util.concurrent.atomic.AtomicLongArray counts = new java.util.concurrent.atomic.AtomicLongArray(BUCKETS);
+        private final java.util.concurrent.atomic.LongAdder sum = new java.util.concurrent.atomic.LongAdder();
+        private final java.util.concurrent.atomic.LongAccumulator max = new java.util.concurrent.atomic.LongAccumulator(java.lang.Math::max, 0);
+
+        Histogram() {}
+
+        public long getCount() {
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += this.counts.get(i);
+            }
+            return count;
+        }
+
+        public double getMean() {
+            long count = getCount();
+            return count == 0 ? 0 : (double) this.sum.sum() / count;
+        }
+
+        public long getMax() {
+            return this.max.get();
+        }
+
+        public long getP50() {
+            return percentile(0.5);
+        }
+
+        public long getP90() {
+            return percentile(0.9);
+        }
+
+        public long getP99() {
+            return percentile(0.99);
+        }
+
+        public long getP999() {
+            return percentile(0.999);
+        }
+
+        /** The value that {@code fraction} of the recorded values are at or below, 0 if there are none. */
+        public long percentile(double fraction) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = this.counts.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = java.lang.Math.max(1, (long) java.lang.Math.ceil(fraction * total));
+            long max = getMax();
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return java.lang.Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        void record(long value) {
+            long clamped = java.lang.Math.min(java.lang.Math.max(value, 0), MAX_VALUE);
+            this.counts.incrementAndGet(bucket(clamped));
+            this.sum.add(clamped);
+            this.max.accumulate(clamped);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                this.counts.set(i, 0);
+            }
+            this.sum.reset();
+            this.max.reset();
+        }
+
+        @Override
+        public java.lang.String toString() {
+            return "[count=" + getCount() + ", p50=" + getP50() + ", p99=" + getP99() + ", max=" + getMax() + "]";
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - java.lang.Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            int subBucket = bucket % SUB_BUCKETS;
+            return ((SUB_BUCKETS + subBucket + 1L) << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+    }
+}
+
+package {{ config.package_name() }};
+
+/**
+ * The JMX view of {@link UniffiAsyncMetrics}. Histograms show up as composite values with their
+ * count, mean, max and percentiles.
+ */
+public interface UniffiAsyncMetricsMXBean {
+    /** The function name as configured in {@code functions}, or {@code foreign futures}. */
+    java.lang.String getName();
+
+    /** Calls started and not yet completed or cancelled. */
+    long getInFlight();
+
+    long getStarted();
+
+    /** Calls completed with a result. */
+    long getCompleted();
+
+    /** Calls completed with an error. */
+    long getFailed();
+
+    long getCancelled();
+
+    /** Time from starting a call to completing its future, for calls that weren't cancelled. */
+    UniffiAsyncMetrics.Histogram getCallNanos();
+
+    /**
+     * Time from Rust last waking a call, for the poll that found it ready, to completing the
+     * call's future.
+     */
+    UniffiAsyncMetrics.Histogram getWakeToCompletionNanos();
+
+    /** Polls of each Rust future that wasn't cancelled. */
+    UniffiAsyncMetrics.Histogram getPollsPerCall();
+
+    /** Clears everything but the calls in flight. */
+    void reset();
+}
+{%- endif %}
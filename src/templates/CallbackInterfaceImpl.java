@@ -41,6 +41,37 @@ public class {{ trait_impl }} {
             java.lang.foreign.MemorySegment uniffiCallStatus
             {%- endif -%}
         ) {
+            {%- if !meth.is_async() && config.inline_calls() %}
+            {#- Straight-line upcall: nothing is captured or boxed, and the status is only touched on failure. #}
+            var uniffiObj = {{ ffi_converter_name }}.INSTANCE.handleMap.get(uniffiHandle);
+            try {
+                {% if meth.return_type().is_some() %}var uniffiValue = {% endif %}uniffiObj.{{ meth.name()|fn_name() }}(
+                    {%- for arg in meth.arguments() %}
+                    {% if arg|has_primitive_ffi_type %}{{ arg.name()|var_name }}{% else %}{{ arg|lift_fn(config, ci) }}({{ arg.name()|var_name }}){% endif %}{% if !loop.last %},{% endif %}
+                    {%- endfor %}
+                );
+                {%- match meth.return_type() %}
+                {%- when Some(return_type) %}
+                {%- let ffi_return_type = return_type|ffi_type %}
+                {%- if ffi_return_type.borrow()|ffi_type_is_embedded_struct %}
+                java.lang.foreign.MemorySegment.copy({{ return_type|lower_fn(config, ci) }}(uniffiValue), 0, uniffiOutReturn.reinterpret({{ ffi_return_type.borrow()|ffi_struct_type_name }}.LAYOUT.byteSize()), 0, {{ ffi_return_type.borrow()|ffi_struct_type_name }}.LAYOUT.byteSize());
+                {%- elif return_type|has_primitive_ffi_type %}
+                uniffiOutReturn.reinterpret({{ ffi_return_type.borrow()|ffi_value_layout }}.byteSize()).set({{ ffi_return_type.borrow()|ffi_value_layout_unaligned }}, 0, uniffiValue);
+                {%- else %}
+                uniffiOutReturn.reinterpret({{ ffi_return_type.borrow()|ffi_value_layout }}.byteSize()).set({{ ffi_return_type.borrow()|ffi_value_layout_unaligned }}, 0, {{ return_type|lower_fn(config, ci) }}(uniffiValue));
+                {%- endif %}
+                {%- when None %}
+                {%- endmatch %}
+            {%- match meth.throws_type() %}
+            {%- when Some(error_type) %}
+            } catch ({{ error_type|type_name(ci, config) }} e) {
+                UniffiHelpers.uniffiTraitInterfaceError(uniffiCallStatus, {{ error_type|lower_fn(config, ci) }}(e));
+            {%- when None %}
+            {%- endmatch %}
+            } catch (java.lang.Exception e) {
+                UniffiHelpers.uniffiTraitInterfacePanic(uniffiCallStatus, e);
+            }
+            {%- else %}
             {%- if ffi_callback.has_rust_call_status_arg() %}
             uniffiCallStatus = uniffiCallStatus.reinterpret(UniffiRustCallStatus.LAYOUT.byteSize());
             {%- endif %}
@@ -87,12 +118,8 @@ public class {{ trait_impl }} {
             {%- else %}
             {#- Async callback interface method -#}
             {%- let result_struct_name = meth.foreign_future_ffi_result_struct().name()|ffi_struct_name %}
-            // The completion callback always has signature: (long callbackData, java.lang.foreign.MemorySegment result) -> void
-            java.lang.foreign.FunctionDescriptor uniffiCompletionDescriptor = java.lang.foreign.FunctionDescriptor.ofVoid(
-                java.lang.foreign.ValueLayout.JAVA_LONG, {{ result_struct_name }}.LAYOUT
-            );
             java.util.function.Consumer<{{ meth|async_inner_return_type(ci, config) }}> uniffiHandleSuccess = ({% match meth.return_type() %}{%- when Some(return_type) %}returnValue{%- when None %}nothing{% endmatch %}) -> {
-                java.lang.foreign.MemorySegment uniffiResult = java.lang.foreign.Arena.ofAuto().allocate({{ result_struct_name }}.LAYOUT);
+                java.lang.foreign.MemorySegment uniffiResult = {{ result_struct_name }}.allocateResult();
                 {%- match meth.return_type() %}
                 {%- when Some(return_type) %}
                 {%- let ffi_return_type = return_type|ffi_type %}
@@ -104,28 +131,13 @@ public class {{ trait_impl }} {
                 {%- endif %}
                 {%- when None %}
                 {%- endmatch %}
-                // Set status to success (zeroed out already)
-                try {
-                    // Convert the upcall java.lang.foreign.MemorySegment to a globally-scoped one for cross-thread use
-                    java.lang.foreign.MemorySegment globalCallback = java.lang.foreign.MemorySegment.ofAddress(uniffiFutureCallback.address());
-                    java.lang.invoke.MethodHandle mh = java.lang.foreign.Linker.nativeLinker().downcallHandle(
-                        globalCallback, uniffiCompletionDescriptor);
-                    mh.invokeExact(uniffiCallbackData, uniffiResult);
-                } catch (Throwable t) {
-                    throw new AssertionError("invokeExact failed", t);
-                }
+                // Status is success, since the result is zeroed
+                {{ result_struct_name }}.complete(uniffiFutureCallback, uniffiCallbackData, uniffiResult);
             };
             java.util.function.Consumer<java.lang.foreign.MemorySegment> uniffiHandleError = (callStatus) -> {
-                java.lang.foreign.MemorySegment uniffiResult = java.lang.foreign.Arena.ofAuto().allocate({{ result_struct_name }}.LAYOUT);
+                java.lang.foreign.MemorySegment uniffiResult = {{ result_struct_name }}.allocateResult();
                 {{ result_struct_name }}.setcallStatus(uniffiResult, callStatus);
-                try {
-                    java.lang.foreign.MemorySegment globalCallback = java.lang.foreign.MemorySegment.ofAddress(uniffiFutureCallback.address());
-                    java.lang.invoke.MethodHandle mh = java.lang.foreign.Linker.nativeLinker().downcallHandle(
-                        globalCallback, uniffiCompletionDescriptor);
-                    mh.invokeExact(uniffiCallbackData, uniffiResult);
-                } catch (Throwable t) {
-                    throw new AssertionError("invokeExact failed", t);
-                }
+                {{ result_struct_name }}.complete(uniffiFutureCallback, uniffiCallbackData, uniffiResult);
             };
 
             {%- match meth.throws_type() %}
@@ -147,6 +159,7 @@ public class {{ trait_impl }} {
             );
             {%- endmatch %}
             {%- endif %}
+            {%- endif %}
         }
     }
     {%- endfor %}
@@ -9,7 +9,8 @@ public abstract class FfiConverterCallbackInterface<CallbackInterface extends ja
     static final int UNIFFI_CALLBACK_ERROR = 1;
     static final int UNIFFI_CALLBACK_UNEXPECTED_ERROR = 2;
 
-    public final UniffiHandleMap<CallbackInterface> handleMap = new UniffiHandleMap<>();
+    // Deduplicated, so lowering the same object again reuses its handle.
+    public final UniffiHandleMap<CallbackInterface> handleMap = new UniffiHandleMap<>(true);
 
     void drop(long handle) {
         handleMap.remove(handle);
@@ -27,7 +28,7 @@ public abstract class FfiConverterCallbackInterface<CallbackInterface extends ja
 
     @Override
     public java.lang.Long lower(CallbackInterface value) {
-      return handleMap.insert(value);
+      return handleMap.insertOrClone(value);
     }
 
     @Override
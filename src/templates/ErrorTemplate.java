@@ -81,6 +81,8 @@ public class {{ type_name }} extends java.lang.Exception {
 package {{ config.package_name() }};
 
 public class {{ type_name }}ErrorHandler implements UniffiRustCallStatusErrorHandler<{{ type_name }}> {
+  public static final {{ type_name }}ErrorHandler INSTANCE = new {{ type_name }}ErrorHandler();
+
   @Override
   public {{ type_name }} lift(java.lang.foreign.MemorySegment errorBuf){
      return {{ ffi_converter_instance }}.lift(errorBuf);
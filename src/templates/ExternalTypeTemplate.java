@@ -6,10 +6,14 @@
 package {{ config.package_name() }};
 
 public class {{ class_name }}ExternalErrorHandler implements UniffiRustCallStatusErrorHandler<{{ external_package_name }}.{{ class_name }}> {
+    public static final {{ class_name }}ExternalErrorHandler INSTANCE = new {{ class_name }}ExternalErrorHandler();
+
+    private static final {{ external_package_name }}.{{ class_name }}ErrorHandler DELEGATE = new {{ external_package_name }}.{{ class_name }}ErrorHandler();
+
     @Override
     public {{ external_package_name }}.{{ class_name }} lift(java.lang.foreign.MemorySegment errorBuf) {
         // In FFM, RustBuffer is already a java.lang.foreign.MemorySegment — pass directly to external package
-        return new {{ external_package_name }}.{{ class_name }}ErrorHandler().lift(errorBuf);
+        return DELEGATE.lift(errorBuf);
     }
 }
 {%- endif %}
@@ -2,46 +2,272 @@ package {{ config.package_name() }};
 
 // This is used pass an opaque 64-bit handle representing a foreign object to the Rust code.
 // Handles are always odd numbers (LSB = 1) to distinguish them from Rust handles (which are even).
+//
+// Objects live in a slab of slots. A handle packs the slot's index into bits 1-31 and the slot's
+// generation into the high 32 bits. The generation goes up by one when the slot is filled and
+// again when it's emptied, so it's odd while the slot holds an object, and a handle to an object
+// that was removed doesn't match its slot again (short of 2^31 reuses of that one slot while the
+// stale handle is kept). Emptied slots go on a lock-free free list and are reused, so inserts
+// don't box or allocate once the slab has grown to the most handles live at once. The slab never
+// shrinks.
+//
+// Each slot also counts references. `clone` bumps the count and returns the same handle, and
+// `remove` drops one reference, only emptying the slot when the last one goes. Rust can clone a
+// callback or trait object into many tasks without the map growing with each clone.
+//
+// Maps made with `deduplicate` also index live entries by object identity, and `insertOrClone`
+// takes another reference to an object's existing entry rather than inserting it again, so
+// passing the same listener to Rust on every call keeps one entry for it.
 class UniffiHandleMap<T extends java.lang.Object> {
-    private final java.util.concurrent.ConcurrentHashMap<java.lang.Long, T> map = new java.util.concurrent.ConcurrentHashMap<>();
-    // Start at 1 and increment by 2 to always produce odd handles
-    private static final long UNIFFI_HANDLEMAP_INITIAL = 1L;
-    private static final long UNIFFI_HANDLEMAP_DELTA = 2L;
-    private final java.util.concurrent.atomic.AtomicLong counter = new java.util.concurrent.atomic.AtomicLong(UNIFFI_HANDLEMAP_INITIAL);
+    // The slab grows in chunks of 32, 64, 128... slots, so slots never move.
+    private static final int UNIFFI_HANDLEMAP_FIRST_CHUNK_BITS = 5;
+    private static final int UNIFFI_HANDLEMAP_FIRST_CHUNK = 1 << UNIFFI_HANDLEMAP_FIRST_CHUNK_BITS;
+    private static final int UNIFFI_HANDLEMAP_CHUNKS = 31 - UNIFFI_HANDLEMAP_FIRST_CHUNK_BITS;
+    private static final int UNIFFI_HANDLEMAP_MAX_SLOTS = java.lang.Integer.MAX_VALUE - UNIFFI_HANDLEMAP_FIRST_CHUNK + 1;
 
+    private static final class Chunk<T> {
+        // The slot's generation in the high 32 bits and its reference count in the low 32 bits,
+        // updated together so a clone can't race the last remove.
+        final java.util.concurrent.atomic.AtomicLongArray states;
+        final java.util.concurrent.atomic.AtomicReferenceArray<T> objects;
+        // The slot below this one on the free list, plus one; 0 at the bottom.
+        final java.util.concurrent.atomic.AtomicIntegerArray nextFree;
+
+        Chunk(int size) {
+            this.states = new java.util.concurrent.atomic.AtomicLongArray(size);
+            this.objects = new java.util.concurrent.atomic.AtomicReferenceArray<>(size);
+            this.nextFree = new java.util.concurrent.atomic.AtomicIntegerArray(size);
+        }
+    }
+
+    private final java.util.concurrent.atomic.AtomicReferenceArray<Chunk<T>> chunks = new java.util.concurrent.atomic.AtomicReferenceArray<>(UNIFFI_HANDLEMAP_CHUNKS);
+    // Slots handed out so far, in use or free.
+    private final java.util.concurrent.atomic.AtomicInteger allocated = new java.util.concurrent.atomic.AtomicInteger();
+    // Top of the free list: the slot plus one (0 when empty) in the low 32 bits, and a count of
+    // updates in the high 32 bits, so a pop can't succeed against a top that was popped and
+    // pushed back in the meantime.
+    private final java.util.concurrent.atomic.AtomicLong freeTop = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.LongAdder live = new java.util.concurrent.atomic.LongAdder();
+    // Handles of live entries by object identity, or null if the map doesn't deduplicate.
+    private final java.util.concurrent.ConcurrentHashMap<UniffiIdentity, java.lang.Long> identities;
+
+    public UniffiHandleMap() {
+        this(false);
+    }
+
+    public UniffiHandleMap(boolean deduplicate) {
+        this.identities = deduplicate ? new java.util.concurrent.ConcurrentHashMap<>() : null;
+    }
+
+    // The number of live objects, not counting clones of their handles.
     public int size() {
-        return map.size();
+        return (int) live.sum();
     }
 
     // Insert a new object into the handle map and get a handle for it
     // Handles are always odd (LSB = 1) to distinguish from Rust handles
     public long insert(T obj) {
-        long handle = counter.getAndAdd(UNIFFI_HANDLEMAP_DELTA);
-        map.put(handle, obj);
+        int slot = popFree();
+        if (slot < 0) {
+            slot = allocated.getAndIncrement();
+            if (slot >= UNIFFI_HANDLEMAP_MAX_SLOTS) {
+                allocated.decrementAndGet();
+                throw new InternalException("UniffiHandleMap: Too many handles");
+            }
+        }
+        Chunk<T> chunk = chunkForInsert(slot);
+        int offset = offset(slot);
+        chunk.objects.lazySet(offset, obj);
+        // The slot is ours until this publishes it, along with the object.
+        int generation = generation(chunk.states.get(offset)) + 1;
+        chunk.states.set(offset, ((long) generation << 32) | 1L);
+        live.increment();
+        return ((long) generation << 32) | ((long) slot << 1) | 1L;
+    }
+
+    // Get a handle for an object, taking another reference to its entry if it has one
+    // Only maps made with `deduplicate` look the object up, others always insert
+    public long insertOrClone(T obj) {
+        if (identities == null) {
+            return insert(obj);
+        }
+        UniffiIdentity key = new UniffiIdentity(obj);
+        java.lang.Long existing = identities.get(key);
+        // The entry may have been freed since it was indexed, then it's inserted again.
+        if (existing != null && retain(existing)) {
+            return existing;
+        }
+        long handle = insert(obj);
+        identities.put(key, handle);
         return handle;
     }
 
     // Get an object from the handle map
     public T get(long handle) {
-        T obj = map.get(handle);
-        if (obj == null) {
-            throw new InternalException("UniffiHandleMap.get: Invalid handle");
+        Chunk<T> chunk = chunkFor(handle);
+        if (chunk != null) {
+            int offset = offset(slot(handle));
+            int generation = generation(handle);
+            if (generation(chunk.states.get(offset)) == generation) {
+                T obj = chunk.objects.get(offset);
+                // Still the same object if the slot wasn't emptied while we read it.
+                if (obj != null && generation(chunk.states.get(offset)) == generation) {
+                    return obj;
+                }
+            }
         }
-        return obj;
+        throw new InternalException("UniffiHandleMap.get: Invalid handle");
     }
 
-    // Remove an entry from the handlemap and get the Java object back
+    // Drop a reference to an entry and get the Java object back
+    // The entry is only removed once its last reference is dropped
     public T remove(long handle) {
-        T obj = map.remove(handle);
-        if (obj == null) {
-            throw new InternalException("UniffiHandleMap: Invalid handle");
+        Chunk<T> chunk = chunkFor(handle);
+        if (chunk != null) {
+            int slot = slot(handle);
+            int offset = offset(slot);
+            int generation = generation(handle);
+            while (true) {
+                long state = chunk.states.get(offset);
+                int refs = (int) state;
+                if (generation(state) != generation || refs == 0) {
+                    break;
+                }
+                if (refs == 1) {
+                    if (chunk.states.compareAndSet(offset, state, (long) (generation + 1) << 32)) {
+                        T obj = chunk.objects.get(offset);
+                        chunk.objects.lazySet(offset, null);
+                        live.decrement();
+                        pushFree(chunk, slot, offset);
+                        if (identities != null) {
+                            // Only if it's still this entry's handle, not a newer one's.
+                            identities.remove(new UniffiIdentity(obj), handle);
+                        }
+                        return obj;
+                    }
+                } else {
+                    // Read before letting go, once it's not ours the slot can be emptied.
+                    T obj = chunk.objects.get(offset);
+                    if (chunk.states.compareAndSet(offset, state, state - 1)) {
+                        return obj;
+                    }
+                }
+            }
         }
-        return obj;
+        throw new InternalException("UniffiHandleMap: Invalid handle");
     }
 
-    // Clone a handle - create a new handle pointing to the same object
+    // Clone a handle - add a reference to the same entry and return the same handle
     public long clone(long handle) {
-        T obj = get(handle);
-        return insert(obj);
+        if (!retain(handle)) {
+            throw new InternalException("UniffiHandleMap: Invalid handle");
+        }
+        return handle;
+    }
+
+    // Add a reference to a handle's entry, or return false if it's no longer live.
+    private boolean retain(long handle) {
+        Chunk<T> chunk = chunkFor(handle);
+        if (chunk != null) {
+            int offset = offset(slot(handle));
+            int generation = generation(handle);
+            while (true) {
+                long state = chunk.states.get(offset);
+                int refs = (int) state;
+                if (generation(state) != generation || refs == 0) {
+                    break;
+                }
+                if (refs == -1) {
+                    throw new InternalException("UniffiHandleMap: Too many clones");
+                }
+                if (chunk.states.compareAndSet(offset, state, state + 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // The generation from a handle or a slot's state.
+    private static int generation(long handleOrState) {
+        return (int) (handleOrState >>> 32);
+    }
+
+    private static int slot(long handle) {
+        return (int) ((handle >>> 1) & java.lang.Integer.MAX_VALUE);
+    }
+
+    private static int chunkIndex(int slot) {
+        return 31 - java.lang.Integer.numberOfLeadingZeros(slot + UNIFFI_HANDLEMAP_FIRST_CHUNK) - UNIFFI_HANDLEMAP_FIRST_CHUNK_BITS;
+    }
+
+    private static int offset(int slot) {
+        int position = slot + UNIFFI_HANDLEMAP_FIRST_CHUNK;
+        return position - java.lang.Integer.highestOneBit(position);
+    }
+
+    // The chunk a handle's slot is in, or null if it can't be a handle from this map.
+    private Chunk<T> chunkFor(long handle) {
+        int slot = slot(handle);
+        if ((handle & 1L) == 0L || slot >= allocated.get()) {
+            return null;
+        }
+        return chunks.get(chunkIndex(slot));
+    }
+
+    private Chunk<T> chunkForInsert(int slot) {
+        int index = chunkIndex(slot);
+        Chunk<T> chunk = chunks.get(index);
+        if (chunk == null) {
+            Chunk<T> created = new Chunk<>(UNIFFI_HANDLEMAP_FIRST_CHUNK << index);
+            chunk = chunks.compareAndSet(index, null, created) ? created : chunks.get(index);
+        }
+        return chunk;
+    }
+
+    private int popFree() {
+        while (true) {
+            long top = freeTop.get();
+            int slot = (int) top - 1;
+            if (slot < 0) {
+                return -1;
+            }
+            // May be stale if the slot was popped meanwhile, but then the CAS fails.
+            int next = chunks.get(chunkIndex(slot)).nextFree.get(offset(slot));
+            if (freeTop.compareAndSet(top, (((top >>> 32) + 1) << 32) | (next & 0xFFFFFFFFL))) {
+                return slot;
+            }
+        }
+    }
+
+    private void pushFree(Chunk<T> chunk, int slot, int offset) {
+        while (true) {
+            long top = freeTop.get();
+            chunk.nextFree.set(offset, (int) top);
+            if (freeTop.compareAndSet(top, (((top >>> 32) + 1) << 32) | (slot + 1L))) {
+                return;
+            }
+        }
+    }
+}
+
+// A map key that compares the object it wraps by identity, not `equals`.
+final class UniffiIdentity {
+    private final java.lang.Object obj;
+    private final int hash;
+
+    UniffiIdentity(java.lang.Object obj) {
+        this.obj = obj;
+        this.hash = java.lang.System.identityHashCode(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(java.lang.Object other) {
+        return other instanceof UniffiIdentity && ((UniffiIdentity) other).obj == obj;
     }
 }
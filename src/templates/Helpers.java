@@ -86,7 +86,7 @@ public interface UniffiRustCallStatusErrorHandler<E extends java.lang.Exception>
 
 package {{ config.package_name() }};
 
-// Thread-local slab allocator for short-lived native memory segments.
+// Slab allocator for short-lived native memory segments.
 //
 // Several FFM code paths need to allocate small struct-sized segments (RustBuffer
 // at 24 bytes, RustCallStatus at 32 bytes) that are consumed immediately and never
@@ -106,11 +106,20 @@ package {{ config.package_name() }};
 // slab is exhausted, a new one is allocated and the old one becomes GC-eligible once
 // all its slices are consumed (which is immediate — callers read struct fields before
 // the next call). Amortized cost: one Arena + one native malloc per `slots` calls.
+//
+// Platform threads each own a slab through a ThreadLocal. Virtual threads are too many
+// and too short-lived for that (a 24-32 KB slab per request thread), so they bump-allocate
+// from a fixed set of shared slabs, striped by thread id. Either way the native memory in
+// use is bounded by the number of live platform threads plus the stripe count, not by how
+// many threads have ever made a call.
 class UniffiSlabAllocator implements java.lang.foreign.SegmentAllocator {
     private final long slabBytes;
     private final long alignment;
     private final ThreadLocal<java.lang.foreign.MemorySegment> slab;
     private final ThreadLocal<long[]> offset;
+{%- if !config.android() %}
+    private final java.util.concurrent.atomic.AtomicReferenceArray<SharedSlab> sharedSlabs;
+{%- endif %}
 
     UniffiSlabAllocator(java.lang.foreign.MemoryLayout layout, long slots) {
         this.slabBytes = layout.byteSize() * slots;
@@ -119,10 +128,19 @@ class UniffiSlabAllocator implements java.lang.foreign.SegmentAllocator {
             java.lang.foreign.Arena.ofAuto().allocate(this.slabBytes, this.alignment)
         );
         this.offset = ThreadLocal.withInitial(() -> new long[]{0});
+{%- if !config.android() %}
+        // Stripes get their first slab on first use, so platform-thread-only programs pay nothing.
+        this.sharedSlabs = new java.util.concurrent.atomic.AtomicReferenceArray<>(uniffiStripeCount());
+{%- endif %}
     }
 
     @Override
     public java.lang.foreign.MemorySegment allocate(long byteSize, long byteAlignment) {
+{%- if !config.android() %}
+        if (Thread.currentThread().isVirtual()) {
+            return allocateShared(byteSize);
+        }
+{%- endif %}
         long[] off = this.offset.get();
         java.lang.foreign.MemorySegment s = this.slab.get();
         if (off[0] + byteSize > s.byteSize()) {
@@ -134,12 +152,177 @@ class UniffiSlabAllocator implements java.lang.foreign.SegmentAllocator {
         off[0] += byteSize;
         return result;
     }
+{%- if !config.android() %}
+
+    // A power of two comfortably above the number of carrier threads, so concurrently
+    // running virtual threads rarely share a stripe.
+    static int uniffiStripeCount() {
+        int target = 4 * Runtime.getRuntime().availableProcessors();
+        return Integer.highestOneBit(Math.max(target - 1, 1)) << 1;
+    }
+
+    private java.lang.foreign.MemorySegment allocateShared(long byteSize) {
+        int stripe = (int) Thread.currentThread().threadId() & (this.sharedSlabs.length() - 1);
+        // Keep every slice aligned, whatever mix of sizes shares the slab.
+        long step = (byteSize + this.alignment - 1) & -this.alignment;
+        while (true) {
+            SharedSlab s = this.sharedSlabs.get(stripe);
+            if (s != null) {
+                long off = s.offset.getAndAdd(step);
+                if (off + byteSize <= s.segment.byteSize()) {
+                    return s.segment.asSlice(off, byteSize);
+                }
+            }
+            // Missing or exhausted: one thread installs a fresh slab, the others retry on it.
+            // The old slab is freed by the GC once its last slice is unreachable.
+            this.sharedSlabs.compareAndSet(stripe, s, new SharedSlab(this.slabBytes, this.alignment));
+        }
+    }
+
+    private static final class SharedSlab {
+        final java.lang.foreign.MemorySegment segment;
+        final java.util.concurrent.atomic.AtomicLong offset = new java.util.concurrent.atomic.AtomicLong();
+
+        SharedSlab(long bytes, long alignment) {
+            this.segment = java.lang.foreign.Arena.ofAuto().allocate(bytes, alignment);
+        }
+    }
+{%- endif %}
 }
 
+{%- if !config.android() %}
+
+package {{ config.package_name() }};
+
+// Bounded lock-free pool of RustCallStatus segments for virtual threads.
+//
+// Platform threads reuse one status each (see UniffiHelpers.REUSABLE_STATUS), but a
+// status per virtual thread would grow with the number of threads ever started. Instead
+// a virtual thread borrows a status for the duration of one call and hands it back.
+// When more calls are in flight than there are slots, the extra statuses come from
+// Arena.ofAuto() and are left to the GC if the pool is still full when they're returned.
+final class UniffiCallStatusPool {
+    private final java.util.concurrent.atomic.AtomicReferenceArray<java.lang.foreign.MemorySegment> slots;
+    private final int mask;
+
+    UniffiCallStatusPool() {
+        int size = UniffiSlabAllocator.uniffiStripeCount();
+        this.slots = new java.util.concurrent.atomic.AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        java.lang.foreign.MemorySegment block = java.lang.foreign.Arena.ofAuto().allocate(UniffiRustCallStatus.LAYOUT.byteSize() * size, UniffiRustCallStatus.LAYOUT.byteAlignment());
+        for (int i = 0; i < size; i++) {
+            this.slots.set(i, block.asSlice(i * UniffiRustCallStatus.LAYOUT.byteSize(), UniffiRustCallStatus.LAYOUT));
+        }
+    }
+
+    java.lang.foreign.MemorySegment acquire() {
+        int start = (int) Thread.currentThread().threadId();
+        for (int i = 0; i <= this.mask; i++) {
+            int idx = (start + i) & this.mask;
+            java.lang.foreign.MemorySegment status = this.slots.get(idx);
+            if (status != null && this.slots.compareAndSet(idx, status, null)) {
+                return status;
+            }
+        }
+        return java.lang.foreign.Arena.ofAuto().allocate(UniffiRustCallStatus.LAYOUT);
+    }
+
+    void release(java.lang.foreign.MemorySegment status) {
+        int start = (int) Thread.currentThread().threadId();
+        for (int i = 0; i <= this.mask; i++) {
+            int idx = (start + i) & this.mask;
+            if (this.slots.get(idx) == null && this.slots.compareAndSet(idx, null, status)) {
+                return;
+            }
+        }
+    }
+}
+{%- endif %}
+
+{%- if calls.has_blocking_calls() %}
+
+package {{ config.package_name() }};
+
+// Runs `blocking` functions called from virtual threads on a fixed pool of platform threads.
+//
+// A downcall pins a virtual thread to its carrier until it returns, so a slow Rust call made
+// from a virtual thread takes a carrier away from every other virtual thread. Handing the call
+// to this pool lets the caller unmount while it waits. Calls beyond the pool size queue up, and
+// idle threads exit after a minute.
+final class UniffiBlockingExecutor {
+    @FunctionalInterface
+    interface UniffiBlockingCall<T, E extends java.lang.Exception> {
+        T call() throws E;
+    }
+
+    // Started on the first offloaded call.
+    private static final class Pool {
+        static final java.util.concurrent.ExecutorService INSTANCE = create();
+
+        private static java.util.concurrent.ExecutorService create() {
+            {%- match config.blocking_threads() %}
+            {%- when Some(threads) %}
+            int threads = {{ threads }};
+            {%- when None %}
+            int threads = Runtime.getRuntime().availableProcessors();
+            {%- endmatch %}
+            java.util.concurrent.atomic.AtomicInteger count = new java.util.concurrent.atomic.AtomicInteger();
+            java.util.concurrent.ThreadPoolExecutor pool = new java.util.concurrent.ThreadPoolExecutor(
+                threads, threads, 60L, java.util.concurrent.TimeUnit.SECONDS,
+                new java.util.concurrent.LinkedBlockingQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, "uniffi-blocking-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    private UniffiBlockingExecutor() {}
+
+    // Run `call` on the pool and park until it's done. The downcall can't be abandoned halfway,
+    // so an interrupt doesn't end the wait early; it's kept set for the caller to see afterwards.
+    static <T, E extends java.lang.Exception> T uniffiOffload(UniffiBlockingCall<T, E> call) throws E {
+        java.util.concurrent.FutureTask<T> task = new java.util.concurrent.FutureTask<>(call::call);
+        Pool.INSTANCE.execute(task);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (java.lang.InterruptedException e) {
+                    interrupted = true;
+                } catch (java.util.concurrent.ExecutionException e) {
+                    java.lang.Throwable cause = e.getCause();
+                    if (cause instanceof java.lang.RuntimeException re) {
+                        throw re;
+                    }
+                    if (cause instanceof java.lang.Error err) {
+                        throw err;
+                    }
+                    // `call` only throws E or unchecked exceptions.
+                    @SuppressWarnings("unchecked")
+                    E checked = (E) cause;
+                    throw checked;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
+{%- endif %}
+
 package {{ config.package_name() }};
 
 // UniffiRustCallStatusErrorHandler implementation for times when we don't expect a CALL_ERROR
 class UniffiNullRustCallStatusErrorHandler implements UniffiRustCallStatusErrorHandler<InternalException> {
+    static final UniffiNullRustCallStatusErrorHandler INSTANCE = new UniffiNullRustCallStatusErrorHandler();
+
     @Override
     public InternalException lift(java.lang.foreign.MemorySegment errorBuf) {
         RustBuffer.free(errorBuf);
@@ -149,20 +332,191 @@ class UniffiNullRustCallStatusErrorHandler implements UniffiRustCallStatusErrorH
 
 package {{ config.package_name() }};
 
+/**
+ * A unit of work whose FFI calls take their transient native memory from one confined arena.
+ *
+ * <p>Outside a scope, call statuses and struct return values come from GC-managed slabs (see
+ * UniffiSlabAllocator), which only give their memory back when the GC gets to them. While a scope
+ * is open, calls made on the thread that opened it bump-allocate those segments from the scope
+ * instead, and {@link #close()} frees all of it at once:
+ *
+ * <pre>{@code
+ * try (UniffiCallScope scope = UniffiCallScope.open()) {
+ *     for (Item item : batch) {
+ *         process(item);
+ *     }
+ * }
+ * }</pre>
+ *
+ * <p>Calls on other threads are unaffected. Scopes nest, and closing one makes the enclosing one
+ * current again, so they must be closed in the reverse order they were opened. Memory is only
+ * reclaimed on close, so a scope grows by one RustBuffer (24 bytes) per struct-returning call made
+ * inside it; size the unit of work accordingly.
+ */
+public final class UniffiCallScope implements java.lang.foreign.SegmentAllocator, java.lang.AutoCloseable {
+    private static final long DEFAULT_CHUNK_BYTES = 64 * 1024;
+
+    private static final ThreadLocal<UniffiCallScope> CURRENT = new ThreadLocal<>();
+    // Scopes open on any thread. Calls only look up CURRENT when this is non-zero, so programs
+    // that never open a scope don't pay for the ThreadLocal on every call.
+    private static final java.util.concurrent.atomic.AtomicInteger OPEN = new java.util.concurrent.atomic.AtomicInteger();
+
+    private final java.lang.foreign.Arena arena = java.lang.foreign.Arena.ofConfined();
+    private final Thread owner = Thread.currentThread();
+    private final UniffiCallScope enclosing = CURRENT.get();
+    private final long chunkBytes;
+    private final java.lang.foreign.MemorySegment status;
+    private java.lang.foreign.MemorySegment chunk;
+    private long offset;
+    private boolean closed;
+
+    private UniffiCallScope(long chunkBytes) {
+        this.chunkBytes = chunkBytes;
+        this.status = this.arena.allocate(UniffiRustCallStatus.LAYOUT);
+    }
+
+    /**
+     * Open a scope on the current thread, with the default chunk size.
+     */
+    public static UniffiCallScope open() {
+        return open(DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Open a scope on the current thread that reserves native memory {@code chunkBytes} at a time.
+     */
+    public static UniffiCallScope open(long chunkBytes) {
+        if (chunkBytes <= 0) {
+            throw new java.lang.IllegalArgumentException("chunkBytes must be positive, got " + chunkBytes);
+        }
+        UniffiCallScope scope = new UniffiCallScope(chunkBytes);
+        CURRENT.set(scope);
+        OPEN.incrementAndGet();
+        return scope;
+    }
+
+    // The innermost open scope on this thread, or null.
+    static UniffiCallScope current() {
+        return OPEN.get() == 0 ? null : CURRENT.get();
+    }
+
+    // The scope's RustCallStatus, zeroed for the next call. Like the per-thread status outside a
+    // scope it's reused by every call, so it never needs releasing.
+    java.lang.foreign.MemorySegment callStatus() {
+        this.status.fill((byte) 0);
+        return this.status;
+    }
+
+    @Override
+    public java.lang.foreign.MemorySegment allocate(long byteSize, long byteAlignment) {
+        checkOwner();
+        if (this.chunk != null) {
+            long base = this.chunk.address();
+            long start = ((base + this.offset + byteAlignment - 1) & -byteAlignment) - base;
+            if (start + byteSize <= this.chunk.byteSize()) {
+                this.offset = start + byteSize;
+                return this.chunk.asSlice(start, byteSize);
+            }
+        }
+        if (byteSize > this.chunkBytes) {
+            return this.arena.allocate(byteSize, byteAlignment);
+        }
+        this.chunk = this.arena.allocate(this.chunkBytes, java.lang.Math.max(byteAlignment, 16));
+        this.offset = byteSize;
+        return this.chunk.asSlice(0, byteSize);
+    }
+
+    /**
+     * Free everything allocated in this scope and make the enclosing scope, if any, current again.
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        checkOwner();
+        if (CURRENT.get() != this) {
+            throw new java.lang.IllegalStateException("UniffiCallScope closed while an inner scope is still open");
+        }
+        this.closed = true;
+        if (this.enclosing == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(this.enclosing);
+        }
+        OPEN.decrementAndGet();
+        this.arena.close();
+    }
+
+    private void checkOwner() {
+        if (this.closed) {
+            throw new java.lang.IllegalStateException("UniffiCallScope is closed");
+        }
+        if (Thread.currentThread() != this.owner) {
+            throw new java.lang.IllegalStateException("UniffiCallScope used outside the thread that opened it");
+        }
+    }
+}
+
+package {{ config.package_name() }};
+
 // Helpers for calling Rust
 // In practice we usually need to be synchronized to call this safely, so it doesn't
 // synchronize itself
 public final class UniffiHelpers {
-    // Thread-local reusable RustCallStatus to avoid allocation on the hot path
+    // Thread-local reusable RustCallStatus to avoid allocation on the hot path. It's only
+    // used by platform threads and comes from Arena.ofAuto(), so it's freed with its thread.
     private static final ThreadLocal<java.lang.foreign.MemorySegment> REUSABLE_STATUS = ThreadLocal.withInitial(() ->
-        java.lang.foreign.Arena.global().allocate(UniffiRustCallStatus.LAYOUT)
+        java.lang.foreign.Arena.ofAuto().allocate(UniffiRustCallStatus.LAYOUT)
     );
+{%- if !config.android() %}
+
+    // Virtual threads borrow a status per call instead, see UniffiCallStatusPool.
+    private static final UniffiCallStatusPool STATUS_POOL = new UniffiCallStatusPool();
+{%- endif %}
 
     // Slab allocator for struct return values from FFI downcalls.
     // See UniffiSlabAllocator for the design rationale.
     private static final UniffiSlabAllocator RETURN_ALLOCATOR = new UniffiSlabAllocator(RustBuffer.LAYOUT, 1024);
 
 
+    // A zeroed RustCallStatus for the next call on this thread. Hand it back with
+    // uniffiReleaseCallStatus() once the status has been checked.
+    static java.lang.foreign.MemorySegment uniffiCallStatus() {
+        UniffiCallScope scope = UniffiCallScope.current();
+        if (scope != null) {
+            return scope.callStatus();
+        }
+        java.lang.foreign.MemorySegment status;
+{%- if !config.android() %}
+        if (Thread.currentThread().isVirtual()) {
+            status = STATUS_POOL.acquire();
+        } else {
+            status = REUSABLE_STATUS.get();
+        }
+{%- else %}
+        status = REUSABLE_STATUS.get();
+{%- endif %}
+        status.fill((byte) 0);
+        return status;
+    }
+
+    static void uniffiReleaseCallStatus(java.lang.foreign.MemorySegment status) {
+{%- if !config.android() %}
+        // A status handed out by a scope belongs to the scope.
+        if (Thread.currentThread().isVirtual() && UniffiCallScope.current() == null) {
+            STATUS_POOL.release(status);
+        }
+{%- endif %}
+    }
+
+    // Allocator for struct return values, passed as the first argument of struct-returning
+    // downcalls. The active UniffiCallScope if there is one, the shared slabs otherwise.
+    static java.lang.foreign.SegmentAllocator uniffiReturnAllocator() {
+        UniffiCallScope scope = UniffiCallScope.current();
+        return scope != null ? scope : RETURN_ALLOCATOR;
+    }
+
     @FunctionalInterface
     public interface UniffiRustCallFunction<U> {
         U apply(java.lang.foreign.SegmentAllocator allocator, java.lang.foreign.MemorySegment status);
@@ -178,21 +532,27 @@ public final class UniffiHelpers {
     static <U, E extends java.lang.Exception> U uniffiRustCallWithError(
             UniffiRustCallStatusErrorHandler<E> errorHandler,
             UniffiRustCallFunction<U> callback) throws E {
-        java.lang.foreign.MemorySegment status = REUSABLE_STATUS.get();
-        status.fill((byte) 0);
-        U returnValue = callback.apply(RETURN_ALLOCATOR, status);
-        uniffiCheckCallStatus(errorHandler, status);
-        return returnValue;
+        java.lang.foreign.MemorySegment status = uniffiCallStatus();
+        try {
+            U returnValue = callback.apply(uniffiReturnAllocator(), status);
+            uniffiCheckCallStatus(errorHandler, status);
+            return returnValue;
+        } finally {
+            uniffiReleaseCallStatus(status);
+        }
     }
 
     // Overload for void-returning functions
     static <E extends java.lang.Exception> void uniffiRustCallWithError(
             UniffiRustCallStatusErrorHandler<E> errorHandler,
             UniffiRustCallVoidFunction callback) throws E {
-        java.lang.foreign.MemorySegment status = REUSABLE_STATUS.get();
-        status.fill((byte) 0);
-        callback.apply(RETURN_ALLOCATOR, status);
-        uniffiCheckCallStatus(errorHandler, status);
+        java.lang.foreign.MemorySegment status = uniffiCallStatus();
+        try {
+            callback.apply(uniffiReturnAllocator(), status);
+            uniffiCheckCallStatus(errorHandler, status);
+        } finally {
+            uniffiReleaseCallStatus(status);
+        }
     }
 
     // Check UniffiRustCallStatus and throw an error if the call wasn't successful
@@ -202,9 +562,9 @@ public final class UniffiHelpers {
         if (UniffiRustCallStatus.isSuccess(status)) {
             return;
         } else if (UniffiRustCallStatus.isError(status)) {
-            throw errorHandler.lift(UniffiRustCallStatus.getErrorBuf(status));
+            throw errorHandler.lift(uniffiTakeErrorBuf(status));
         } else if (UniffiRustCallStatus.isPanic(status)) {
-            java.lang.foreign.MemorySegment errorBuf = UniffiRustCallStatus.getErrorBuf(status);
+            java.lang.foreign.MemorySegment errorBuf = uniffiTakeErrorBuf(status);
             if (RustBuffer.getLen(errorBuf) > 0) {
                 throw new InternalException({{ Type::String.borrow()|lift_fn(config, ci) }}(errorBuf));
             } else {
@@ -215,6 +575,14 @@ public final class UniffiHelpers {
         }
     }
 
+    // Lifting an error buffer frees it with a nested call, which on a platform thread zeroes
+    // this same status. Copy the buffer out first so the free sees the real pointer.
+    private static java.lang.foreign.MemorySegment uniffiTakeErrorBuf(java.lang.foreign.MemorySegment status) {
+        java.lang.foreign.MemorySegment errorBuf = uniffiReturnAllocator().allocate(RustBuffer.LAYOUT);
+        errorBuf.copyFrom(UniffiRustCallStatus.getErrorBuf(status));
+        return errorBuf;
+    }
+
     // Primitive-specialized variants that avoid autoboxing overhead.
     // For each primitive type, we have a functional interface + call + callWithError.
     {%- for (prim, suffix) in [("long", "Long"), ("int", "Int"), ("short", "Short"), ("byte", "Byte"), ("float", "Float"), ("double", "Double"), ("boolean", "Boolean")] %}
@@ -227,26 +595,29 @@ public final class UniffiHelpers {
     static <E extends java.lang.Exception> {{ prim }} uniffiRustCallWithError{{ suffix }}(
             UniffiRustCallStatusErrorHandler<E> errorHandler,
             UniffiRustCall{{ suffix }}Function callback) throws E {
-        java.lang.foreign.MemorySegment status = REUSABLE_STATUS.get();
-        status.fill((byte) 0);
-        {{ prim }} returnValue = callback.apply(RETURN_ALLOCATOR, status);
-        uniffiCheckCallStatus(errorHandler, status);
-        return returnValue;
+        java.lang.foreign.MemorySegment status = uniffiCallStatus();
+        try {
+            {{ prim }} returnValue = callback.apply(uniffiReturnAllocator(), status);
+            uniffiCheckCallStatus(errorHandler, status);
+            return returnValue;
+        } finally {
+            uniffiReleaseCallStatus(status);
+        }
     }
 
     static {{ prim }} uniffiRustCall{{ suffix }}(UniffiRustCall{{ suffix }}Function callback) {
-        return uniffiRustCallWithError{{ suffix }}(new UniffiNullRustCallStatusErrorHandler(), callback);
+        return uniffiRustCallWithError{{ suffix }}(UniffiNullRustCallStatusErrorHandler.INSTANCE, callback);
     }
     {%- endfor %}
 
     // Call a rust function that returns a plain value
     static <U> U uniffiRustCall(UniffiRustCallFunction<U> callback) {
-        return uniffiRustCallWithError(new UniffiNullRustCallStatusErrorHandler(), callback);
+        return uniffiRustCallWithError(UniffiNullRustCallStatusErrorHandler.INSTANCE, callback);
     }
 
     // Call a rust function that returns nothing
     static void uniffiRustCall(UniffiRustCallVoidFunction callback) {
-        uniffiRustCallWithError(new UniffiNullRustCallStatusErrorHandler(), callback);
+        uniffiRustCallWithError(UniffiNullRustCallStatusErrorHandler.INSTANCE, callback);
     }
 
     static <T> void uniffiTraitInterfaceCall(
@@ -257,11 +628,25 @@ public final class UniffiHelpers {
         try {
             writeReturn.accept(makeCall.get());
         } catch (java.lang.Exception e) {
-            UniffiRustCallStatus.setCode(callStatus, UniffiRustCallStatus.UNIFFI_CALL_UNEXPECTED_ERROR);
-            UniffiRustCallStatus.setErrorBuf(callStatus, {{ Type::String.borrow()|lower_fn(config, ci) }}(uniffiStackTraceToString(e)));
+            uniffiTraitInterfacePanic(callStatus, e);
         }
     }
 
+    // Report an error returned by a callback interface method. The status arrives from the
+    // upcall as a bare pointer, so it's only sized here, on the error path.
+    static void uniffiTraitInterfaceError(java.lang.foreign.MemorySegment callStatus, java.lang.foreign.MemorySegment errorBuf) {
+        callStatus = callStatus.reinterpret(UniffiRustCallStatus.LAYOUT.byteSize());
+        UniffiRustCallStatus.setCode(callStatus, UniffiRustCallStatus.UNIFFI_CALL_ERROR);
+        UniffiRustCallStatus.setErrorBuf(callStatus, errorBuf);
+    }
+
+    // Report an unexpected exception thrown by a callback interface method.
+    static void uniffiTraitInterfacePanic(java.lang.foreign.MemorySegment callStatus, java.lang.Exception e) {
+        callStatus = callStatus.reinterpret(UniffiRustCallStatus.LAYOUT.byteSize());
+        UniffiRustCallStatus.setCode(callStatus, UniffiRustCallStatus.UNIFFI_CALL_UNEXPECTED_ERROR);
+        UniffiRustCallStatus.setErrorBuf(callStatus, {{ Type::String.borrow()|lower_fn(config, ci) }}(uniffiStackTraceToString(e)));
+    }
+
     private static java.lang.String uniffiStackTraceToString(java.lang.Throwable e) {
         try {
             java.io.StringWriter sw = new java.io.StringWriter();
@@ -285,11 +670,9 @@ public final class UniffiHelpers {
             if (errorClazz.isAssignableFrom(e.getClass())) {
                 @SuppressWarnings("unchecked")
                 E castedE = (E) e;
-                UniffiRustCallStatus.setCode(callStatus, UniffiRustCallStatus.UNIFFI_CALL_ERROR);
-                UniffiRustCallStatus.setErrorBuf(callStatus, lowerError.apply(castedE));
+                uniffiTraitInterfaceError(callStatus, lowerError.apply(castedE));
             } else {
-                UniffiRustCallStatus.setCode(callStatus, UniffiRustCallStatus.UNIFFI_CALL_UNEXPECTED_ERROR);
-                UniffiRustCallStatus.setErrorBuf(callStatus, {{ Type::String.borrow()|lower_fn(config, ci) }}(uniffiStackTraceToString(e)));
+                uniffiTraitInterfacePanic(callStatus, e);
             }
         }
     }
@@ -31,11 +31,15 @@ final class NamespaceLibrary {
     }
 
 {%- if !config.omit_checksums() %}
-    static void uniffiCheckApiChecksums() {
-    {%- for (name, expected_checksum) in ci.iter_checksums() %}
-        if (UniffiLib.{{ name }}() != ((short) {{ expected_checksum }})) {
+    static void uniffiCheckApiChecksum(short actual, short expected) {
+        if (actual != expected) {
             throw new RuntimeException("UniFFI API checksum mismatch: try cleaning and rebuilding your project");
         }
+    }
+
+    static void uniffiCheckApiChecksums() {
+    {%- for (name, expected_checksum) in self.eager_checksums() %}
+        uniffiCheckApiChecksum(UniffiLib.{{ name }}(), (short) {{ expected_checksum }});
     {%- endfor %}
     }
 {%- endif %}
@@ -123,6 +127,40 @@ public final class {{ ffi_struct.name()|ffi_struct_name }} {
         seg.fill((byte) 0);
         return seg;
     }
+    {%- if self.is_foreign_future_result(ffi_struct.name()) %}
+
+    // Results handed to the Rust completion callback, which takes the struct by value. Each
+    // completion gets a fresh slice and a used-up slab is reclaimed by the GC. See
+    // UniffiSlabAllocator.
+    private static final UniffiSlabAllocator RESULT_ALLOCATOR = new UniffiSlabAllocator(LAYOUT, 256);
+
+    // Every completion callback for this result type has the same signature, so one
+    // address-taking downcall handle serves whichever callback pointer Rust hands us.
+    private static final java.lang.invoke.MethodHandle COMPLETE = java.lang.foreign.Linker.nativeLinker().downcallHandle(
+        java.lang.foreign.FunctionDescriptor.ofVoid(java.lang.foreign.ValueLayout.JAVA_LONG, LAYOUT)
+    );
+
+    /**
+     * A zeroed result to pass to {@link #complete}.
+     */
+    static java.lang.foreign.MemorySegment allocateResult() {
+        java.lang.foreign.MemorySegment seg = RESULT_ALLOCATOR.allocate(LAYOUT);
+        seg.fill((byte) 0);
+        return seg;
+    }
+
+    /**
+     * Call the Rust completion callback at {@code callback} with {@code result}.
+     */
+    static void complete(java.lang.foreign.MemorySegment callback, long callbackData, java.lang.foreign.MemorySegment result) {
+        try {
+            // Rebuild the pointer as a global segment, since this may run on another thread after the upcall returned.
+            COMPLETE.invokeExact(java.lang.foreign.MemorySegment.ofAddress(callback.address()), callbackData, result);
+        } catch (Throwable t) {
+            throw new AssertionError("invokeExact failed", t);
+        }
+    }
+    {%- endif %}
 }
 {%- when FfiDefinition::Function(_) %}
 {#- functions are handled below #}
@@ -132,6 +170,10 @@ public final class {{ ffi_struct.name()|ffi_struct_name }} {
 package {{ config.package_name() }};
 
 // FFM-based library binding. Each FFI function gets a MethodHandle and a wrapper method.
+{%- if config.lazy_linking() %}
+// MethodHandles live in holder classes, so a symbol is linked (and its checksum verified) the
+// first time its wrapper method runs.
+{%- endif %}
 final class UniffiLib {
     private static final java.lang.foreign.Linker LINKER = java.lang.foreign.Linker.nativeLinker();
     private static final java.lang.foreign.SymbolLookup SYMBOLS;
@@ -145,39 +187,57 @@ final class UniffiLib {
         SYMBOLS = NamespaceLibrary.loadLibrary();
     }
 
-    private static java.lang.invoke.MethodHandle findDowncallHandle(String name, java.lang.foreign.FunctionDescriptor descriptor) {
+    {%- if self.has_critical_downcalls() %}
+    // Critical downcalls skip the Java -> native thread state transition. Only used for short
+    // leaf functions that never call back into Java, see `critical_downcalls` in the README.
+    private static final java.lang.foreign.Linker.Option CRITICAL = java.lang.foreign.Linker.Option.critical(false);
+    {%- endif %}
+
+    private static java.lang.invoke.MethodHandle findDowncallHandle(String name, java.lang.foreign.FunctionDescriptor descriptor, java.lang.foreign.Linker.Option... options) {
         return SYMBOLS.find(name)
-            .map(s -> LINKER.downcallHandle(s, descriptor))
+            .map(s -> LINKER.downcallHandle(s, descriptor, options))
             .orElseThrow(() -> new RuntimeException("Missing FFI symbol: " + name));
     }
 
     {% for func in ci.iter_ffi_function_definitions() -%}
     // {{ func.name() }}
+    {%- if config.lazy_linking() %}
+    private static final class MH_{{ func.name() }} {
+        static final java.lang.invoke.MethodHandle HANDLE = findDowncallHandle("{{ func.name() }}", {{ func|ffi_function_descriptor }}{% if self.is_critical_downcall(func.name()) %}, CRITICAL{% endif %});
+        {%- match self.lazy_checksum(func.name()) %}
+        {%- when Some((checksum_func, expected_checksum)) %}
+
+        static {
+            NamespaceLibrary.uniffiCheckApiChecksum({{ checksum_func }}(), (short) {{ expected_checksum }});
+        }
+        {%- when None %}
+        {%- endmatch %}
+    }
+    {%- else %}
+    private static final java.lang.invoke.MethodHandle MH_{{ func.name() }} = findDowncallHandle("{{ func.name() }}", {{ func|ffi_function_descriptor }}{% if self.is_critical_downcall(func.name()) %}, CRITICAL{% endif %});
+    {%- endif %}
     {%- match func.return_type() %}
     {%- when Some(return_type) %}
     {%- if return_type|ffi_type_is_struct %}
-    private static final java.lang.invoke.MethodHandle MH_{{ func.name() }} = findDowncallHandle("{{ func.name() }}", java.lang.foreign.FunctionDescriptor.of({{ return_type|ffi_value_layout }}{% for arg in func.arguments() %}, {{ arg.type_().borrow()|ffi_value_layout }}{% endfor %}{% if func.has_rust_call_status_arg() %}, java.lang.foreign.ValueLayout.ADDRESS{% endif %}));
 
     static java.lang.foreign.MemorySegment {{ func.name() }}(java.lang.foreign.SegmentAllocator _allocator{% for arg in func.arguments() %}, {{ arg.type_().borrow()|ffi_type_name(config, ci) }} {{ arg.name()|var_name }}{% endfor %}{% if func.has_rust_call_status_arg() %}, java.lang.foreign.MemorySegment uniffiOutErr{% endif %}) {
         try {
-            return (java.lang.foreign.MemorySegment) MH_{{ func.name() }}.invokeExact(_allocator{% for arg in func.arguments() %}, {{ arg.name()|var_name }}{% endfor %}{% if func.has_rust_call_status_arg() %}, uniffiOutErr{% endif %});
+            return (java.lang.foreign.MemorySegment) MH_{{ func.name() }}{% if config.lazy_linking() %}.HANDLE{% endif %}.invokeExact(_allocator{% for arg in func.arguments() %}, {{ arg.name()|var_name }}{% endfor %}{% if func.has_rust_call_status_arg() %}, uniffiOutErr{% endif %});
         } catch (Throwable _ex) { throw new AssertionError("invokeExact failed", _ex); }
     }
     {%- else %}
-    private static final java.lang.invoke.MethodHandle MH_{{ func.name() }} = findDowncallHandle("{{ func.name() }}", java.lang.foreign.FunctionDescriptor.of({{ return_type|ffi_value_layout }}{% for arg in func.arguments() %}, {{ arg.type_().borrow()|ffi_value_layout }}{% endfor %}{% if func.has_rust_call_status_arg() %}, java.lang.foreign.ValueLayout.ADDRESS{% endif %}));
 
     static {{ return_type|ffi_type_name(config, ci) }} {{ func.name() }}({% for arg in func.arguments() %}{{ arg.type_().borrow()|ffi_type_name(config, ci) }} {{ arg.name()|var_name }}{% if !loop.last %}, {% endif %}{% endfor %}{% if func.has_rust_call_status_arg() %}{% if func.arguments().len() != 0 %}, {% endif %}java.lang.foreign.MemorySegment uniffiOutErr{% endif %}) {
         try {
-            return {{ return_type|ffi_invoke_exact_cast }}MH_{{ func.name() }}.invokeExact({% for arg in func.arguments() %}{{ arg.name()|var_name }}{% if !loop.last %}, {% endif %}{% endfor %}{% if func.has_rust_call_status_arg() %}{% if func.arguments().len() != 0 %}, {% endif %}uniffiOutErr{% endif %});
+            return {{ return_type|ffi_invoke_exact_cast }}MH_{{ func.name() }}{% if config.lazy_linking() %}.HANDLE{% endif %}.invokeExact({% for arg in func.arguments() %}{{ arg.name()|var_name }}{% if !loop.last %}, {% endif %}{% endfor %}{% if func.has_rust_call_status_arg() %}{% if func.arguments().len() != 0 %}, {% endif %}uniffiOutErr{% endif %});
         } catch (Throwable _ex) { throw new AssertionError("invokeExact failed", _ex); }
     }
     {%- endif %}
     {%- when None %}
-    private static final java.lang.invoke.MethodHandle MH_{{ func.name() }} = findDowncallHandle("{{ func.name() }}", java.lang.foreign.FunctionDescriptor.ofVoid({% for arg in func.arguments() %}{{ arg.type_().borrow()|ffi_value_layout }}{% if !loop.last %}, {% endif %}{% endfor %}{% if func.has_rust_call_status_arg() %}{% if func.arguments().len() != 0 %}, {% endif %}java.lang.foreign.ValueLayout.ADDRESS{% endif %}));
 
     static void {{ func.name() }}({% for arg in func.arguments() %}{{ arg.type_().borrow()|ffi_type_name(config, ci) }} {{ arg.name()|var_name }}{% if !loop.last %}, {% endif %}{% endfor %}{% if func.has_rust_call_status_arg() %}{% if func.arguments().len() != 0 %}, {% endif %}java.lang.foreign.MemorySegment uniffiOutErr{% endif %}) {
         try {
-            MH_{{ func.name() }}.invokeExact({% for arg in func.arguments() %}{{ arg.name()|var_name }}{% if !loop.last %}, {% endif %}{% endfor %}{% if func.has_rust_call_status_arg() %}{% if func.arguments().len() != 0 %}, {% endif %}uniffiOutErr{% endif %});
+            MH_{{ func.name() }}{% if config.lazy_linking() %}.HANDLE{% endif %}.invokeExact({% for arg in func.arguments() %}{{ arg.name()|var_name }}{% if !loop.last %}, {% endif %}{% endfor %}{% if func.has_rust_call_status_arg() %}{% if func.arguments().len() != 0 %}, {% endif %}uniffiOutErr{% endif %});
         } catch (Throwable _ex) { throw new AssertionError("invokeExact failed", _ex); }
     }
     {%- endmatch %}
@@ -0,0 +1,60 @@
+package {{ config.package_name() }};
+
+// In-flight call counter for objects configured with `shared_object = true`.
+//
+// The plain counter is one `AtomicLong` that every call increments and decrements, so when many
+// threads call methods on the same object its cache line moves between cores on every call. This
+// one splits the count into stripes, each on its own cache lines, and a call only touches the
+// stripe picked by its thread. It keeps the same guarantees: the object is freed once `close` has
+// been called and no calls are in flight, and it's freed at most once.
+//
+//    * A call increments its stripe and then checks `closed`. `close` sets `closed` and then sums
+//      the stripes. Either the call sees `closed` and backs out without touching the handle, or
+//      `close` sees the call's increment and leaves the free to whoever finishes last.
+//
+//    * Once `closed` is set, every decrement sums the stripes. A call only ever decrements the
+//      stripe it incremented, so no stripe goes negative and a sum of zero means nothing is in
+//      flight. The first to see zero wins `freed` and frees the object.
+//
+// Closing is slower than with the plain counter since it reads every stripe. Each counter takes
+// 128 bytes per stripe, with one stripe per processor up to 32, so this is for a few long-lived
+// objects shared by many threads rather than for every object.
+final class UniffiStripedCallCounter {
+    private static final int STRIPES = java.lang.Math.min(32,
+        java.lang.Integer.highestOneBit(java.lang.Runtime.getRuntime().availableProcessors() * 2 - 1));
+    // Longs between stripes, so two of them never share a cache line or an adjacent-line prefetch.
+    private static final int PADDING = 16;
+
+    private final java.util.concurrent.atomic.AtomicLongArray counts = new java.util.concurrent.atomic.AtomicLongArray(STRIPES * PADDING);
+    private final java.util.concurrent.atomic.AtomicBoolean closed = new java.util.concurrent.atomic.AtomicBoolean(false);
+    private final java.util.concurrent.atomic.AtomicBoolean freed = new java.util.concurrent.atomic.AtomicBoolean(false);
+
+    // Start a call and return the index to pass to `release`, or its complement if the object is
+    // closed, in which case the call must not go ahead but still has to be released.
+    int acquire() {
+        int h = java.lang.System.identityHashCode(java.lang.Thread.currentThread());
+        int index = ((h ^ (h >>> 16)) & (STRIPES - 1)) * PADDING;
+        counts.getAndIncrement(index);
+        return closed.get() ? ~index : index;
+    }
+
+    // End a call, returning true if the caller should now free the object.
+    boolean release(int index) {
+        counts.getAndDecrement(index);
+        return closed.get() && tryFree();
+    }
+
+    // Close the object, returning true if the caller should now free it.
+    boolean close() {
+        return closed.compareAndSet(false, true) && tryFree();
+    }
+
+    private boolean tryFree() {
+        for (int index = 0; index < STRIPES * PADDING; index += PADDING) {
+            if (counts.get(index) != 0L) {
+                return false;
+            }
+        }
+        return freed.compareAndSet(false, true);
+    }
+}
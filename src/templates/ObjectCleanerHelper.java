@@ -10,8 +10,16 @@ interface UniffiCleaner {
         void clean();
     }
 
+    // Frees the Rust object behind a handle. Objects share one per class, and the cleaner keeps
+    // the handle, so registering an object doesn't allocate a clean-up task for it.
+    interface Free {
+        void free(long handle);
+    }
+
     UniffiCleaner.Cleanable register(java.lang.Object value, java.lang.Runnable cleanUpTask);
 
+    UniffiCleaner.Cleanable register(java.lang.Object value, long handle, UniffiCleaner.Free free);
+
     public static UniffiCleaner create() {
         return new UniffiBackpressureCleaner();
     }
@@ -59,10 +67,9 @@ class UniffiBackpressureCleaner implements UniffiCleaner {
         t.start();
     }
 
-    @Override
-    public UniffiCleaner.Cleanable register(java.lang.Object value, java.lang.Runnable cleanUpTask) {
-        // Opportunistic drain: process a few pending refs on this thread.
-        // queue.poll() is essentially free when the queue is empty.
+    // Opportunistic drain: process a few pending refs on this thread.
+    // queue.poll() is essentially free when the queue is empty.
+    private void drain() {
         for (int i = 0; i < DRAIN_BATCH_SIZE; i++) {
             java.lang.ref.Reference<?> ref = queue.poll();
             if (ref == null) break;
@@ -70,25 +77,38 @@ class UniffiBackpressureCleaner implements UniffiCleaner {
                 ((CleanableRef) ref).clean();
             }
         }
-        return new CleanableRef(head, value, queue, cleanUpTask);
+    }
+
+    @Override
+    public UniffiCleaner.Cleanable register(java.lang.Object value, java.lang.Runnable cleanUpTask) {
+        drain();
+        return new CleanableRef(head, value, queue, cleanUpTask, 0L);
+    }
+
+    @Override
+    public UniffiCleaner.Cleanable register(java.lang.Object value, long handle, UniffiCleaner.Free free) {
+        drain();
+        return new CleanableRef(head, value, queue, free, handle);
     }
 
     // A PhantomReference that doubles as a Cleanable, stored in a doubly-linked list to
     // keep it alive until cleanup. The cleanup action is stored in a volatile field with
     // VarHandle CAS for idempotent clean(). clean() synchronizes on the list sentinel to
-    // unlink, keeping the list trimmed.
+    // unlink, keeping the list trimmed. The action is either a Runnable, or a shared Free
+    // that's passed the handle kept here, so objects don't need a Runnable each.
     private static class CleanableRef extends java.lang.ref.PhantomReference<java.lang.Object> implements UniffiCleaner.Cleanable {
         private static final java.lang.invoke.VarHandle ACTION;
         static {
             try {
                 ACTION = java.lang.invoke.MethodHandles.lookup()
-                    .findVarHandle(CleanableRef.class, "action", java.lang.Runnable.class);
+                    .findVarHandle(CleanableRef.class, "action", java.lang.Object.class);
             } catch (ReflectiveOperationException e) {
                 throw new ExceptionInInitializerError(e);
             }
         }
 
-        private volatile java.lang.Runnable action;
+        private volatile java.lang.Object action;
+        private final long handle;
         private final CleanableRef list; // sentinel to synchronize on
         private CleanableRef prev;
         private CleanableRef next;
@@ -96,15 +116,17 @@ class UniffiBackpressureCleaner implements UniffiCleaner {
         // Sentinel constructor.
         CleanableRef() {
             super(null, null);
+            this.handle = 0L;
             this.list = this;
             this.prev = this;
             this.next = this;
         }
 
         // Normal constructor — inserts itself into the list.
-        CleanableRef(CleanableRef list, java.lang.Object referent, java.lang.ref.ReferenceQueue<java.lang.Object> q, java.lang.Runnable action) {
+        CleanableRef(CleanableRef list, java.lang.Object referent, java.lang.ref.ReferenceQueue<java.lang.Object> q, java.lang.Object action, long handle) {
             super(referent, q);
             this.action = action;
+            this.handle = handle;
             this.list = list;
             synchronized (list) {
                 this.prev = list;
@@ -118,7 +140,7 @@ class UniffiBackpressureCleaner implements UniffiCleaner {
         public void clean() {
             // Atomic swap ensures the action runs at most once, even if called
             // concurrently from close() and the background cleaner thread.
-            java.lang.Runnable a = (java.lang.Runnable) ACTION.getAndSet(this, null);
+            java.lang.Object a = ACTION.getAndSet(this, null);
             if (a != null) {
                 synchronized (list) {
                     // Because of the swap above this these guards shouldn't be necessary, but including them defensively
@@ -127,7 +149,11 @@ class UniffiBackpressureCleaner implements UniffiCleaner {
                     prev = null;
                     next = null;
                 }
-                a.run();
+                if (a instanceof UniffiCleaner.Free) {
+                    ((UniffiCleaner.Free) a).free(handle);
+                } else {
+                    ((java.lang.Runnable) a).run();
+                }
             }
         }
     }
@@ -17,6 +17,11 @@ class AndroidSystemCleaner implements UniffiCleaner {
     public UniffiCleaner.Cleanable register(java.lang.Object value, java.lang.Runnable cleanUpTask) {
         return new AndroidSystemCleanable(cleaner.register(value, cleanUpTask));
     }
+
+    @Override
+    public UniffiCleaner.Cleanable register(java.lang.Object value, long handle, UniffiCleaner.Free free) {
+        return register(value, () -> free.free(handle));
+    }
 }
 
 package {{ config.package_name() }};
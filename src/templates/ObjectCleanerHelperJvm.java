@@ -11,6 +11,11 @@ class JavaLangRefCleaner implements UniffiCleaner {
     public UniffiCleaner.Cleanable register(java.lang.Object value, java.lang.Runnable cleanUpTask) {
         return new JavaLangRefCleanable(cleaner.register(value, cleanUpTask));
     }
+
+    @Override
+    public UniffiCleaner.Cleanable register(java.lang.Object value, long handle, UniffiCleaner.Free free) {
+        return register(value, () -> free.free(handle));
+    }
 }
 
 package {{ config.package_name() }};
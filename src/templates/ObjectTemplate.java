@@ -52,9 +52,10 @@
 // generate methods with any hidden blocking semantics, and a `close` method that might
 // block if called incorrectly seems to meet that bar.
 //
-// So, we achieve our goals by giving each instance an associated `AtomicLong` counter to track
-// the number of in-flight method calls, and an `AtomicBoolean` flag to indicate whether `close`
-// has been called. These are updated according to the following rules:
+// So, we achieve our goals by giving each instance a `long` counter to track the number of
+// in-flight method calls, and a `boolean` flag to indicate whether `close` has been called. Both
+// are volatile fields updated atomically through static `VarHandle`s, so they don't cost an
+// `AtomicLong` and an `AtomicBoolean` per object. These are updated according to the following rules:
 //
 //    * The initial value of the counter is 1, indicating a live object with no in-flight calls.
 //      The initial value for the flag is false.
@@ -99,6 +100,10 @@
   {%- include "ObjectCleanerHelper.java" %}
 {%- endif %}
 
+{%- if config.is_shared_object(name) && self.include_once_check("striped-call-counter") %}
+  {%- include "ObjectCallCounter.java" %}
+{%- endif %}
+
 {%- let obj = ci.get_object_definition(name).unwrap() %}
 {%- let (interface_name, impl_class_name) = obj|object_names(ci) %}
 {%- let methods = obj.methods() %}
@@ -106,6 +111,8 @@
 {%- let interface_docstring = obj.docstring() %}
 {%- let is_error = ci.is_name_used_as_error(name) %}
 {%- let ffi_converter_name = obj|ffi_converter_name %}
+{%- let shared_object = config.is_shared_object(name) %}
+{%- let thread_confined = config.is_thread_confined(name) %}
 
 {%- include "Interface.java" %}
 
@@ -120,8 +127,47 @@ public class {{ impl_class_name }} implements AutoCloseable, {{ interface_name }
   protected long handle;
   protected UniffiCleaner.{% if config.nullness_annotations() %}@org.jspecify.annotations.Nullable {% endif %}Cleanable cleanable;
 
-  private java.util.concurrent.atomic.AtomicBoolean wasDestroyed = new java.util.concurrent.atomic.AtomicBoolean(false);
-  private java.util.concurrent.atomic.AtomicLong callCounter = new java.util.concurrent.atomic.AtomicLong(1);
+  {%- if shared_object %}
+  private final UniffiStripedCallCounter callCounter = new UniffiStripedCallCounter();
+  {%- else if thread_confined %}
+
+  // Checks that every call is made on the thread that made the first one. Set the
+  // `{{ config.package_name() }}.threadConfinedChecks` system property to `false` to skip them.
+  private static final boolean UNIFFI_CHECK_OWNER =
+      !"false".equals(java.lang.System.getProperty("{{ config.package_name() }}.threadConfinedChecks"));
+
+  // Plain fields, since the object is only used from one thread.
+  private java.lang.Thread uniffiOwner;
+  private boolean wasDestroyed = false;
+  private long callCounter = 1L;
+  {%- else %}
+
+  private static final java.lang.invoke.VarHandle WAS_DESTROYED;
+  private static final java.lang.invoke.VarHandle CALL_COUNTER;
+  static {
+    try {
+      java.lang.invoke.MethodHandles.Lookup lookup = java.lang.invoke.MethodHandles.lookup();
+      WAS_DESTROYED = lookup.findVarHandle({{ impl_class_name }}.class, "wasDestroyed", boolean.class);
+      CALL_COUNTER = lookup.findVarHandle({{ impl_class_name }}.class, "callCounter", long.class);
+    } catch (java.lang.ReflectiveOperationException e) {
+      throw new java.lang.ExceptionInInitializerError(e);
+    }
+  }
+
+  private volatile boolean wasDestroyed;
+  private volatile long callCounter = 1L;
+  {%- endif %}
+
+  // Frees the Rust object, shared by every instance. The cleaner keeps the handle.
+  private static final UniffiCleaner.Free UNIFFI_FREE = handle -> {
+    // If the handle is 0 this is a fake object created with `NoHandle`, don't try to free.
+    if (handle != 0L) {
+      UniffiHelpers.uniffiRustCall((_allocator, status) -> {
+        UniffiLib.{{ obj.ffi_object_free().name() }}(handle, status);
+        return null;
+      });
+    }
+  };
 
   /**
    * Internal constructor to wrap a raw handle from FFI.
@@ -129,7 +175,7 @@ public class {{ impl_class_name }} implements AutoCloseable, {{ interface_name }
    */
   public {{ impl_class_name }}(UniffiWithHandle phantom, long handle) {
     this.handle = handle;
-    this.cleanable = UniffiLib.CLEANER.register(this, new UniffiCleanAction(handle));
+    this.cleanable = UniffiLib.CLEANER.register(this, handle, UNIFFI_FREE);
   }
 
   /**
@@ -156,78 +202,181 @@ public class {{ impl_class_name }} implements AutoCloseable, {{ interface_name }
   {%- endmatch %}
 
   @Override
-  public synchronized void close() {
+  public {% if !thread_confined %}synchronized {% endif %}void close() {
+    {%- if shared_object %}
+    // The counter only lets the first call through, and only once no calls are in flight.
+    if (this.callCounter.close()) {
+      if (cleanable != null) {
+        cleanable.clean();
+      }
+    }
+    {%- else if thread_confined %}
+    if (UNIFFI_CHECK_OWNER) {
+      uniffiCheckOwner();
+    }
+    if (!this.wasDestroyed) {
+      this.wasDestroyed = true;
+      // This decrement always matches the initial count of 1 given at creation time.
+      if (--this.callCounter == 0L) {
+        if (cleanable != null) {
+          cleanable.clean();
+        }
+      }
+    }
+    {%- else %}
     // Only allow a single call to this method.
     // TODO(uniffi): maybe we should log a warning if called more than once?
-    if (this.wasDestroyed.compareAndSet(false, true)) {
+    if (WAS_DESTROYED.compareAndSet(this, false, true)) {
       // This decrement always matches the initial count of 1 given at creation time.
-      if (this.callCounter.decrementAndGet() == 0L) {
+      if ((long) CALL_COUNTER.getAndAdd(this, -1L) == 1L) {
         if (cleanable != null) {
           cleanable.clean();
         }
       }
     }
+    {%- endif %}
   }
 
   public <R> R callWithHandle(java.util.function.Function<java.lang.Long, R> block) {
-    // Check and increment the call counter, to keep the object alive.
-    // This needs a compare-and-set retry loop in case of concurrent updates.
-    long c;
-    do {
-      c = this.callCounter.get();
-      if (c == 0L) {
-        throw new java.lang.IllegalStateException("{{ impl_class_name }} object has already been destroyed");
-      }
-      if (c == java.lang.Long.MAX_VALUE) {
-        throw new java.lang.IllegalStateException("{{ impl_class_name }} call counter would overflow");
-      }
-    } while (! this.callCounter.compareAndSet(c, c + 1L));
+    {% if shared_object %}int uniffiStripe = {% endif %}uniffiAcquire();
     // Now we can safely do the method call without the handle being freed concurrently.
     try {
       return block.apply(this.uniffiCloneHandle());
     } finally {
-      // This decrement always matches the increment we performed above.
-      if (this.callCounter.decrementAndGet() == 0L) {
-        if (cleanable != null) {
-          cleanable.clean();
-        }
-      }
+      uniffiRelease({% if shared_object %}uniffiStripe{% endif %});
     }
   }
 
   public void callWithHandle(java.util.function.Consumer<java.lang.Long> block) {
-    callWithHandle((java.lang.Long uniffiHandle) -> {
-      block.accept(uniffiHandle);
-      return (java.lang.Void)null;
-    });
+    {% if shared_object %}int uniffiStripe = {% endif %}uniffiAcquire();
+    try {
+      block.accept(this.uniffiCloneHandle());
+    } finally {
+      uniffiRelease({% if shared_object %}uniffiStripe{% endif %});
+    }
+  }
+
+  // Variants of `callWithHandle` that pass the handle, and return primitive results, unboxed.
+  public <R> R callWithHandleObject(UniffiHandleFunction<R> block) {
+    {% if shared_object %}int uniffiStripe = {% endif %}uniffiAcquire();
+    try {
+      return block.apply(this.uniffiCloneHandle());
+    } finally {
+      uniffiRelease({% if shared_object %}uniffiStripe{% endif %});
+    }
+  }
+
+  public void callWithHandleVoid(UniffiHandleConsumer block) {
+    {% if shared_object %}int uniffiStripe = {% endif %}uniffiAcquire();
+    try {
+      block.accept(this.uniffiCloneHandle());
+    } finally {
+      uniffiRelease({% if shared_object %}uniffiStripe{% endif %});
+    }
   }
+  {%- for (prim, suffix) in [("long", "Long"), ("int", "Int"), ("short", "Short"), ("byte", "Byte"), ("float", "Float"), ("double", "Double")] %}
 
-  private class UniffiCleanAction implements Runnable {
-    private final long handle;
+  public {{ prim }} callWithHandle{{ suffix }}(UniffiHandle{{ suffix }}Function block) {
+    {% if shared_object %}int uniffiStripe = {% endif %}uniffiAcquire();
+    try {
+      return block.apply(this.uniffiCloneHandle());
+    } finally {
+      uniffiRelease({% if shared_object %}uniffiStripe{% endif %});
+    }
+  }
+  {%- endfor %}
+
+  {%- if shared_object %}
 
-    public UniffiCleanAction(long handle) {
-      this.handle = handle;
+  // Count the call on this thread's stripe, to keep the object alive.
+  private int uniffiAcquire() {
+    int stripe = this.callCounter.acquire();
+    if (stripe < 0) {
+      uniffiRelease(~stripe);
+      throw new java.lang.IllegalStateException("{{ impl_class_name }} object has already been destroyed");
     }
+    return stripe;
+  }
 
-    @Override
-    public void run() {
-      // If the handle is 0 this is a fake object created with `NoHandle`, don't try to free.
-      if (handle != 0L) {
-        UniffiHelpers.uniffiRustCall((_allocator, status) -> {
-          UniffiLib.{{ obj.ffi_object_free().name() }}(handle, status);
-          return null;
-        });
+  private void uniffiRelease(int stripe) {
+    // This always matches the stripe counted by `uniffiAcquire`.
+    if (this.callCounter.release(stripe)) {
+      if (cleanable != null) {
+        cleanable.clean();
       }
     }
   }
+  {%- else if thread_confined %}
 
-  long uniffiCloneHandle() {
-    return UniffiHelpers.uniffiRustCall((_allocator, status) -> {
-      if (handle == 0L) {
-        throw new java.lang.NullPointerException();
+  // Check and increment the call counter, to keep the object alive.
+  private void uniffiAcquire() {
+    if (UNIFFI_CHECK_OWNER) {
+      uniffiCheckOwner();
+    }
+    if (this.callCounter == 0L) {
+      throw new java.lang.IllegalStateException("{{ impl_class_name }} object has already been destroyed");
+    }
+    this.callCounter++;
+  }
+
+  private void uniffiRelease() {
+    // This decrement always matches the increment performed by `uniffiAcquire`.
+    if (--this.callCounter == 0L) {
+      if (cleanable != null) {
+        cleanable.clean();
       }
-      return UniffiLib.{{ obj.ffi_object_clone().name() }}(handle, status);
-    });
+    }
+  }
+
+  // The object belongs to the first thread that uses it, which isn't always the one that made
+  // it: async calls return objects lifted on an executor thread.
+  private void uniffiCheckOwner() {
+    java.lang.Thread current = java.lang.Thread.currentThread();
+    if (this.uniffiOwner == null) {
+      this.uniffiOwner = current;
+    } else if (this.uniffiOwner != current) {
+      throw new java.lang.IllegalStateException("{{ impl_class_name }} is thread confined to " + this.uniffiOwner + " but was used from " + current);
+    }
+  }
+  {%- else %}
+
+  // Check and increment the call counter, to keep the object alive.
+  private void uniffiAcquire() {
+    // This needs a compare-and-set retry loop in case of concurrent updates.
+    long c;
+    do {
+      c = this.callCounter;
+      if (c == 0L) {
+        throw new java.lang.IllegalStateException("{{ impl_class_name }} object has already been destroyed");
+      }
+      if (c == java.lang.Long.MAX_VALUE) {
+        throw new java.lang.IllegalStateException("{{ impl_class_name }} call counter would overflow");
+      }
+    } while (! CALL_COUNTER.compareAndSet(this, c, c + 1L));
+  }
+
+  private void uniffiRelease() {
+    // This decrement always matches the increment performed by `uniffiAcquire`.
+    if ((long) CALL_COUNTER.getAndAdd(this, -1L) == 1L) {
+      if (cleanable != null) {
+        cleanable.clean();
+      }
+    }
+  }
+  {%- endif %}
+
+  long uniffiCloneHandle() {
+    if (handle == 0L) {
+      throw new java.lang.NullPointerException();
+    }
+    java.lang.foreign.MemorySegment status = UniffiHelpers.uniffiCallStatus();
+    try {
+      long clonedHandle = UniffiLib.{{ obj.ffi_object_clone().name() }}(handle, status);
+      UniffiHelpers.uniffiCheckCallStatus(UniffiNullRustCallStatusErrorHandler.INSTANCE, status);
+      return clonedHandle;
+    } finally {
+      UniffiHelpers.uniffiReleaseCallStatus(status);
+    }
   }
 
   {% for meth in obj.methods() -%}
@@ -247,6 +396,8 @@ public class {{ impl_class_name }} implements AutoCloseable, {{ interface_name }
 package {{ config.package_name() }};
 
 public class {{ impl_class_name }}ErrorHandler implements UniffiRustCallStatusErrorHandler<{{ impl_class_name }}> {
+    public static final {{ impl_class_name }}ErrorHandler INSTANCE = new {{ impl_class_name }}ErrorHandler();
+
     @Override
     public {{ impl_class_name }} lift(java.lang.foreign.MemorySegment error_buf) {
         // Due to some mismatches in the ffi converter mechanisms, errors are a RustBuffer.
@@ -312,7 +463,8 @@ package {{ config.package_name() }};
 public enum {{ ffi_converter_name }} implements FfiConverter<{{ type_name }}, java.lang.Long> {
     INSTANCE;
 
-    public final UniffiHandleMap<{{ type_name }}> handleMap = new UniffiHandleMap<>();
+    // Deduplicated, so lowering the same object again reuses its handle.
+    public final UniffiHandleMap<{{ type_name }}> handleMap = new UniffiHandleMap<>(true);
 
     @Override
     public java.lang.Long lower({{ type_name }} value) {
@@ -320,8 +472,8 @@ public enum {{ ffi_converter_name }} implements FfiConverter<{{ type_name }}, ja
             // Rust-implemented object. Clone the handle and return it.
             return (({{ impl_class_name }}) value).uniffiCloneHandle();
         } else {
-            // Java object, generate a new handle and return that.
-            return handleMap.insert(value);
+            // Java object, take a reference to its handle (inserting it if it has none) and return that.
+            return handleMap.insertOrClone(value);
         }
     }
 
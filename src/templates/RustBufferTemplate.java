@@ -43,9 +43,14 @@ public final class RustBuffer {
     }
 
     public static java.lang.foreign.MemorySegment alloc(long size) {
-        java.lang.foreign.MemorySegment buffer = UniffiHelpers.uniffiRustCall((_allocator, status) -> {
-            return UniffiLib.{{ ci.ffi_rustbuffer_alloc().name() }}(_allocator, size, status);
-        });
+        java.lang.foreign.MemorySegment buffer;
+        java.lang.foreign.MemorySegment status = UniffiHelpers.uniffiCallStatus();
+        try {
+            buffer = UniffiLib.{{ ci.ffi_rustbuffer_alloc().name() }}(UniffiHelpers.uniffiReturnAllocator(), size, status);
+            UniffiHelpers.uniffiCheckCallStatus(UniffiNullRustCallStatusErrorHandler.INSTANCE, status);
+        } finally {
+            UniffiHelpers.uniffiReleaseCallStatus(status);
+        }
         if (getData(buffer).equals(java.lang.foreign.MemorySegment.NULL) && size > 0) {
             throw new java.lang.RuntimeException("RustBuffer.alloc() returned null data pointer (size=" + size + ")");
         }
@@ -53,10 +58,13 @@ public final class RustBuffer {
     }
 
     public static void free(java.lang.foreign.MemorySegment buffer) {
-        UniffiHelpers.uniffiRustCall((_allocator, status) -> {
+        java.lang.foreign.MemorySegment status = UniffiHelpers.uniffiCallStatus();
+        try {
             UniffiLib.{{ ci.ffi_rustbuffer_free().name() }}(buffer, status);
-            return null;
-        });
+            UniffiHelpers.uniffiCheckCallStatus(UniffiNullRustCallStatusErrorHandler.INSTANCE, status);
+        } finally {
+            UniffiHelpers.uniffiReleaseCallStatus(status);
+        }
     }
 
     /**
@@ -79,6 +79,31 @@ public class UniffiWithHandle {
     public static final UniffiWithHandle INSTANCE = new UniffiWithHandle();
 }
 
+package {{ config.package_name() }};
+
+// Blocks for the `callWithHandle{Object,Void,Long,Int,...}` variants on objects, which take the
+// handle as a `long` so neither it nor a primitive result is boxed.
+@FunctionalInterface
+public interface UniffiHandleFunction<R> {
+    R apply(long handle);
+}
+
+package {{ config.package_name() }};
+
+@FunctionalInterface
+public interface UniffiHandleConsumer {
+    void accept(long handle);
+}
+{%- for (prim, suffix) in [("long", "Long"), ("int", "Int"), ("short", "Short"), ("byte", "Byte"), ("float", "Float"), ("double", "Double")] %}
+
+package {{ config.package_name() }};
+
+@FunctionalInterface
+public interface UniffiHandle{{ suffix }}Function {
+    {{ prim }} apply(long handle);
+}
+{%- endfor %}
+
 {%- for type_ in ci.iter_local_types() %}
 {%- let type_name = type_|type_name(ci, config) %}
 {%- let ffi_converter_name = type_|ffi_converter_name %}
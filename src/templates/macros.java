@@ -7,7 +7,7 @@
 {%- macro to_ffi_call(func) -%}
     {%- match func.self_type() %}
     {%- when Some with (Type::Object { .. }) %}
-    callWithHandle(uniffiHandle -> {
+    callWithHandle{% match func.return_type() %}{% when Some(return_type) %}{% let suffix = return_type|primitive_call_suffix %}{% if suffix.is_empty() %}Object{% else %}{{ suffix }}{% endif %}{% when None %}Void{% endmatch %}(uniffiHandle -> {
         try {
     {% if func.return_type().is_some() %}
             return {%- call to_raw_ffi_call(func) %};
@@ -32,11 +32,7 @@
     {%- endmatch %}
     {%- match func.throws_type() %}
     {%- when Some(e) %}
-    {%- if e|is_external(ci) %}
-    UniffiHelpers.uniffiRustCallWithError{% match func.return_type() %}{%- when Some(return_type) %}{{ return_type|primitive_call_suffix }}{% when None %}{% endmatch %}(new {{ e|class_name_from_type(ci) }}ExternalErrorHandler(),
-    {%- else %}
-    UniffiHelpers.uniffiRustCallWithError{% match func.return_type() %}{%- when Some(return_type) %}{{ return_type|primitive_call_suffix }}{% when None %}{% endmatch %}(new {{ e|type_name(ci, config) }}ErrorHandler(),
-    {%- endif %}
+    UniffiHelpers.uniffiRustCallWithError{% match func.return_type() %}{%- when Some(return_type) %}{{ return_type|primitive_call_suffix }}{% when None %}{% endmatch %}({% call error_handler(func) %},
     {%- else %}
     UniffiHelpers.uniffiRustCall{% match func.return_type() %}{%- when Some(return_type) %}{{ return_type|primitive_call_suffix }}{% when None %}{% endmatch %}(
     {%- endmatch %} (_allocator, _status) -> {
@@ -64,19 +60,40 @@
     {% endif %}
     {%- if callable.is_async() %}
     {#- Async methods use CompletableFuture<T> which requires boxed types -#}
-    {#- No-executor overload — defaults to ForkJoinPool.commonPool(), delegates to Executor version -#}
+    {#- No-executor overload — uses the default executors, delegates to Executor version -#}
     {{ func_decl }} java.util.concurrent.CompletableFuture<{% match callable.return_type() -%}{%- when Some with (return_type) -%}{{ return_type|boxed_type_name(ci, config) }}{%- when None %}java.lang.Void{%- endmatch %}> {{ callable.name()|fn_name }}(
         {%- call arg_list(callable, !callable.self_type().is_some()) -%}
     ){
-        return {{ callable.name()|fn_name }}({% call arg_name_list(callable) %}{% if !callable.arguments().is_empty() %}, {% endif %}java.util.concurrent.ForkJoinPool.commonPool());
+        return {{ callable.name()|fn_name }}({% call arg_name_list(callable) %}{% if !callable.arguments().is_empty() %}, {% endif %}UniffiAsyncHelpers.UNIFFI_DEFAULT_EXECUTOR);
     }
 
     {#- With-executor overload — does the actual async work -#}
     {{ func_decl }} java.util.concurrent.CompletableFuture<{% match callable.return_type() -%}{%- when Some with (return_type) -%}{{ return_type|boxed_type_name(ci, config) }}{%- when None %}java.lang.Void{%- endmatch %}> {{ callable.name()|fn_name }}(
         {%- call arg_list(callable, !callable.self_type().is_some()) -%}{% if !callable.arguments().is_empty() %}, {% endif %}java.util.concurrent.Executor uniffiExecutor
     ){
-        return {% call call_async(callable) %};
+        {%- if calls.is_coalesced_call(callable.ffi_func().name()) %}
+        // Concurrent calls with equal arguments share one Rust future.
+        return UniffiAsyncHelpers.uniffiRustCallCoalesced(
+            new UniffiAsyncHelpers.UniffiCoalescingKey("{{ callable.ffi_func().name() }}"{% if callable.self_type().is_some() %}, this{% endif %}{% if !callable.arguments().is_empty() %}, {% call arg_name_list(callable) %}{% endif %}),
+            () -> {
+                {%- call start_async(callable) %}
+            });
+        {%- else %}
+        {%- call start_async(callable) %}
+        {%- endif %}
+    }
+    {%- if config.async_blocking_variants() %}
+
+    {#- Blocking variant — drives the Rust future on the calling thread, parking between polls -#}
+    {{ func_decl }} {% match callable.return_type() -%}{%- when Some with (return_type) -%}{{ return_type|type_name_for_field(ci, config) }}{%- when None %}void{%- endmatch %} {{ callable.name()|fn_name }}{{ config.async_blocking_suffix() }}(
+        {%- call arg_list(callable, !callable.self_type().is_some()) -%}
+    ) throws {% match callable.throws_type() -%}
+        {%-     when Some(throwable) -%}
+        {{ throwable|type_name(ci, config) }}, {% else -%}
+        {%- endmatch %}java.lang.InterruptedException {
+        {% if callable.return_type().is_some() %}return {% endif %}{% call call_async_blocking(callable) %};
     }
+    {%- endif %}
     {%- else -%}
     {#- Sync methods can use primitives for return types -#}
     {{ func_decl }} {% match callable.return_type() -%}{%- when Some with (return_type) -%}{{ return_type|type_name_for_field(ci, config) }}{%- when None %}void{%- endmatch %} {{ callable.name()|fn_name }}(
@@ -86,6 +103,23 @@
         throws {{ throwable|type_name(ci, config) }}
         {%-     else -%}
         {%- endmatch %} {
+        {%- if calls.is_blocking_call(callable.ffi_func().name()) %}
+        if (Thread.currentThread().isVirtual()) {
+            // Re-enter on a platform thread so the downcall doesn't pin this thread's carrier.
+            {% if callable.return_type().is_some() -%}
+            return UniffiBlockingExecutor.uniffiOffload(() -> {{ callable.name()|fn_name }}({% call arg_name_list(callable) %}));
+            {%- else -%}
+            UniffiBlockingExecutor.uniffiOffload(() -> {
+                {{ callable.name()|fn_name }}({% call arg_name_list(callable) %});
+                return null;
+            });
+            return;
+            {%- endif %}
+        }
+        {%- endif %}
+        {%- if config.inline_calls() %}
+        {%- call inline_call_body(callable) %}
+        {%- else %}
             try {
                 {% match callable.return_type() -%}
                 {%- when Some with (return_type) -%}
@@ -108,16 +142,147 @@
                 }
                 throw _uniffi_ex;
             }
+        {%- endif %}
     }
     {% endif %}
 {% endmacro %}
 
+{#-
+// Straight-line body for a sync callable, used with `inline_calls`: no functional interfaces,
+// so nothing is captured or boxed. Object methods hold the call counter for the duration of
+// the call, as `callWithHandle` does.
+-#}
+{%- macro inline_call_body(callable) %}
+    {%- match callable.self_type() %}
+    {%- when Some with (Type::Object { name, .. }) %}
+        {%- let shared_object = config.is_shared_object(name) %}
+        {% if shared_object %}int uniffiStripe = {% endif %}uniffiAcquire();
+        try {
+            long uniffiHandle = uniffiCloneHandle();
+            {%- call inline_raw_call(callable) %}
+        } finally {
+            uniffiRelease({% if shared_object %}uniffiStripe{% endif %});
+        }
+    {%- else %}
+        {%- call inline_raw_call(callable) %}
+    {%- endmatch %}
+{%- endmacro %}
+
+{%- macro inline_raw_call(callable) %}
+        java.lang.foreign.MemorySegment _status = UniffiHelpers.uniffiCallStatus();
+        try {
+        {% match callable.ffi_func().return_type() %}{% when Some(ffi_return_type) %}{{ ffi_return_type|ffi_type_name(config, ci) }} _ret = {% when None %}{% endmatch -%}
+        UniffiLib.{{ callable.ffi_func().name() }}(
+            {%- match callable.ffi_func().return_type() %}
+            {%- when Some(ffi_return_type) %}
+            {%- if ffi_return_type|ffi_type_is_struct %}UniffiHelpers.uniffiReturnAllocator(), {% endif %}
+            {%- when None %}
+            {%- endmatch %}
+            {%- match callable.self_type() %}
+            {%- when Some with (Type::Object { .. }) %}uniffiHandle, {% when Some(t) %}{{ t|lower_fn(config, ci) }}(this), {% when None %}
+            {%- endmatch %}
+            {%- if callable.arguments().len() != 0 %}{% call arg_list_lowered(callable) -%}, {% endif -%}
+            _status);
+        UniffiHelpers.uniffiCheckCallStatus({% call error_handler(callable) %}, _status);
+        {%- match callable.return_type() %}
+        {%- when Some(return_type) %}
+        {%- if return_type|has_primitive_ffi_type %}
+        return _ret;
+        {%- else %}
+        return {{ return_type|lift_fn(config, ci) }}(_ret);
+        {%- endif %}
+        {%- when None %}
+        {%- endmatch %}
+        } finally {
+            UniffiHelpers.uniffiReleaseCallStatus(_status);
+        }
+{%- endmacro %}
+
+{#- The shared `UniffiRustCallStatusErrorHandler` that lifts a callable's error. -#}
+{%- macro error_handler(callable) -%}
+    {%- match callable.throws_type() %}
+    {%- when Some(e) %}
+    {%- if e|is_external(ci) -%}
+    {{ e|class_name_from_type(ci) }}ExternalErrorHandler.INSTANCE
+    {%- else -%}
+    {{ e|type_name(ci, config) }}ErrorHandler.INSTANCE
+    {%- endif %}
+    {%- when None -%}
+    UniffiNullRustCallStatusErrorHandler.INSTANCE
+    {%- endmatch %}
+{%- endmacro %}
+
 {%- macro call_async(callable) -%}
     UniffiAsyncHelpers.uniffiRustCallAsync(
+        {%- if config.async_metrics() %}
+        UniffiAsyncMetrics.{{ config.async_metrics_field(callable.ffi_func().name()) }},
+        {%- endif %}
         uniffiExecutor,
+        {%- call async_call_args(callable) %}
+    )
+{%- endmacro %}
+
+{#- Statements that start an async call and return its future.
+    With an in-flight limit, the Rust future is only created once the call gets through it. The
+    receiver and arguments are lowered now all the same, so a queued call sends them as they were
+    when it was made. A call that never starts hands them to a Rust future that's freed unpolled,
+    which drops them on the Rust side. -#}
+{%- macro start_async(callable) -%}
+    {%- match calls.async_limiter(callable.ffi_func().name()) %}
+    {%- when Some(limiter) %}
+        {%- match callable.self_type() %}
+        {%- when Some with (Type::Object { .. }) %}
+        long uniffiHandle = callWithHandleLong(uniffiClonedHandle -> uniffiClonedHandle);
+        {%- when Some(t) %}
+        var uniffiSelf = {{ t|lower_fn(config, ci) }}(this);
+        {%- when None %}
+        {%- endmatch %}
+        {%- for arg in callable.arguments() %}
+        {%- if arg|has_primitive_ffi_type %}
+        {%- else %}
+        var uniffiLowered{{ loop.index }} = {{ arg|lower_fn(config, ci) }}({{ arg.name()|var_name }});
+        {%- endif %}
+        {%- endfor %}
+        return UniffiAsyncHelpers.uniffiRustCallAsyncLimited(
+            {{ limiter }},
+            () -> UniffiLib.{{ callable.ffi_func().name() }}(
+                {%- match callable.self_type() %}
+                {%- when Some with (Type::Object { .. }) %}uniffiHandle{% if !callable.arguments().is_empty() %}, {% endif %}
+                {%- when Some(t) %}uniffiSelf{% if !callable.arguments().is_empty() %}, {% endif %}
+                {%- when None %}
+                {%- endmatch %}
+                {%- for arg in callable.arguments() %}
+                {%- if arg|has_primitive_ffi_type %}{{ arg.name()|var_name }}{% else %}uniffiLowered{{ loop.index }}{% endif %}
+                {%- if !loop.last %}, {% endif %}
+                {%- endfor %}),
+            {{ callable|async_free(ci) }},
+            uniffiRustFuture -> UniffiAsyncHelpers.uniffiRustCallAsync(
+                {%- if config.async_metrics() %}
+                UniffiAsyncMetrics.{{ config.async_metrics_field(callable.ffi_func().name()) }},
+                {%- endif %}
+                uniffiExecutor,
+                uniffiRustFuture,
+                {%- call async_drive_args(callable) %}
+            ));
+    {%- when None %}
+        return {% call call_async(callable) %};
+    {%- endmatch %}
+{%- endmacro %}
+
+{%- macro call_async_blocking(callable) -%}
+    UniffiAsyncHelpers.uniffiRustCallBlocking(
+        {%- if config.async_metrics() %}
+        UniffiAsyncMetrics.{{ config.async_metrics_field(callable.ffi_func().name()) }},
+        {%- endif %}
+        {%- call async_call_args(callable) %}
+    )
+{%- endmacro %}
+
+{#- The Rust future and the functions that drive it, shared by async and blocking calls. -#}
+{%- macro async_call_args(callable) -%}
 {%- match callable.self_type() %}
 {%- when Some with (Type::Object { .. }) %}
-        callWithHandle(uniffiHandle -> {
+        callWithHandleLong(uniffiHandle -> {
             return UniffiLib.{{ callable.ffi_func().name() }}(
                 uniffiHandle{% if callable.arguments().len() != 0 %},{% endif %}
                 {% call arg_list_lowered(callable) %}
@@ -131,6 +296,11 @@
 {%- when None %}
         UniffiLib.{{ callable.ffi_func().name() }}({% call arg_list_lowered(callable) %}),
 {%- endmatch %}
+        {%- call async_drive_args(callable) %}
+{%- endmacro %}
+
+{#- The functions that poll, complete, free and lift a callable's Rust future. -#}
+{%- macro async_drive_args(callable) %}
         {{ callable|async_poll(ci) }},
         {{ callable|async_complete(ci, config) }},
         {{ callable|async_free(ci) }},
@@ -142,17 +312,7 @@
         () -> {},
         {%- endmatch %}
         // Error FFI converter
-        {%- match callable.throws_type() %}
-        {%- when Some(e) %}
-        {%- if e|is_external(ci) %}
-        new {{ e|class_name_from_type(ci) }}ExternalErrorHandler()
-        {%- else %}
-        new {{ e|type_name(ci, config) }}ErrorHandler()
-        {%- endif %}
-        {%- when None %}
-        new UniffiNullRustCallStatusErrorHandler()
-        {%- endmatch %}
-    )
+        {% call error_handler(callable) %}
 {%- endmacro %}
 
 {%- macro arg_list_lowered(func) %}
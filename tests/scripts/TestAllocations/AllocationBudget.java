@@ -0,0 +1,55 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.lang.management.ManagementFactory;
+import java.text.MessageFormat;
+
+/**
+ * Allocation measurement shared by TestAllocations, TestObjectAllocations and
+ * TestTraitMethodAllocations.
+ *
+ * Each case is warmed up so the call path is JIT compiled, then the bytes allocated by this
+ * thread over CALLS calls are read from ThreadMXBean.getCurrentThreadAllocatedBytes and checked
+ * against a per-call budget.
+ */
+public final class AllocationBudget {
+  static final int WARMUP_ROUNDS = 20;
+  static final int WARMUP_CALLS = 50_000;
+  static final int CALLS = 1_000_000;
+  // Fixed allowance for the measurement itself (e.g. a late JIT deopt), not scaled by CALLS.
+  static final long SLACK_BYTES = 16 * 1024;
+
+  static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  @FunctionalInterface
+  interface Calls {
+    void run(int count) throws Exception;
+  }
+
+  private AllocationBudget() {}
+
+  // Call once before measuring anything.
+  static void enable() {
+    assert THREADS.isThreadAllocatedMemorySupported() : "thread allocated memory is not supported";
+    THREADS.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  static void assertBudget(String name, long budgetBytesPerCall, Calls calls) throws Exception {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      calls.run(WARMUP_CALLS);
+    }
+    long before = THREADS.getCurrentThreadAllocatedBytes();
+    calls.run(CALLS);
+    long allocated = THREADS.getCurrentThreadAllocatedBytes() - before;
+    double perCall = (double) allocated / CALLS;
+    System.out.println(MessageFormat.format(
+        "{0}: {1} bytes/call (budget {2})", name, perCall, budgetBytesPerCall));
+    assert allocated <= budgetBytesPerCall * CALLS + SLACK_BYTES
+        : MessageFormat.format(
+            "{0} allocated {1} bytes over {2} calls, budget is {3} bytes/call",
+            name, allocated, CALLS, budgetBytesPerCall);
+    System.out.println(name + " allocation budget ... ok");
+  }
+}
@@ -0,0 +1,109 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.List;
+import java.util.Map;
+import uniffi.benchmarks.*;
+
+/**
+ * Allocation regression test for the function-call benchmark categories.
+ *
+ * Each category is measured with AllocationBudget. Calls with primitive-only signatures must not
+ * allocate at all, so any new per-call allocation on their path fails the test. The other budgets
+ * are loose upper bounds, well above what their arguments and results take, so they only catch
+ * allocations that grow with the call, like copying a buffer per element, not one more small
+ * object per call. trait-interfaces is left out since its results can't be closed eagerly, so the
+ * measurement would mostly be Cleaner bookkeeping.
+ */
+public class TestAllocations {
+  public static void main(String[] args) throws Exception {
+    AllocationBudget.enable();
+
+    // Primitive-only signatures: zero bytes per call.
+    AllocationBudget.assertBudget("call-only", 0, n -> {
+      for (int i = 0; i < n; i++) {
+        Benchmarks.testCaseCallOnly();
+      }
+    });
+    AllocationBudget.assertBudget("primitives", 0, n -> {
+      for (int i = 0; i < n; i++) {
+        Benchmarks.testCasePrimitives((byte) 0, i);
+      }
+    });
+
+    // Everything else has to allocate for its arguments and return value.
+    String largeString1 = "a".repeat(2048);
+    String largeString2 = "b".repeat(1500);
+    TestRecord rec1 = new TestRecord(-1, 1L, 1.5);
+    TestRecord rec2 = new TestRecord(-2, 2L, 4.5);
+    TestEnum enum1 = new TestEnum.One(-1, 0L);
+    TestEnum enum2 = new TestEnum.Two(1.5);
+    int[] vec1 = new int[]{0, 1};
+    int[] vec2 = new int[]{2, 4, 6};
+    Map<Integer, Integer> map1 = Map.of(0, 1, 1, 2);
+    Map<Integer, Integer> map2 = Map.of(2, 4);
+    NestedData nested1 = new NestedData(
+        List.of(new TestRecord(-1, 1L, 1.5)),
+        List.of(List.of("one", "two"), List.of("three")),
+        Map.of("one", new TestEnum.One(-1, 1L), "two", new TestEnum.Two(0.5)));
+    NestedData nested2 = new NestedData(
+        List.of(new TestRecord(-2, 2L, 4.5)),
+        List.of(List.of("four", "five")),
+        Map.of("two", new TestEnum.Two(-0.5)));
+
+    AllocationBudget.assertBudget("strings", 2 * 1024, n -> {
+      for (int i = 0; i < n; i++) {
+        Benchmarks.testCaseStrings("a", "b");
+      }
+    });
+    AllocationBudget.assertBudget("large-strings", 32 * 1024, n -> {
+      for (int i = 0; i < n; i++) {
+        Benchmarks.testCaseLargeStrings(largeString1, largeString2);
+      }
+    });
+    AllocationBudget.assertBudget("records", 2 * 1024, n -> {
+      for (int i = 0; i < n; i++) {
+        Benchmarks.testCaseRecords(rec1, rec2);
+      }
+    });
+    AllocationBudget.assertBudget("enums", 2 * 1024, n -> {
+      for (int i = 0; i < n; i++) {
+        Benchmarks.testCaseEnums(enum1, enum2);
+      }
+    });
+    AllocationBudget.assertBudget("vecs", 4 * 1024, n -> {
+      for (int i = 0; i < n; i++) {
+        Benchmarks.testCaseVecs(vec1, vec2);
+      }
+    });
+    AllocationBudget.assertBudget("hash-maps", 4 * 1024, n -> {
+      for (int i = 0; i < n; i++) {
+        Benchmarks.testCaseHashmaps(map1, map2);
+      }
+    });
+    AllocationBudget.assertBudget("nested-data", 16 * 1024, n -> {
+      for (int i = 0; i < n; i++) {
+        Benchmarks.testCaseNestedData(nested1, nested2);
+      }
+    });
+    try (TestInterface interface1 = new TestInterface(); TestInterface interface2 = new TestInterface()) {
+      AllocationBudget.assertBudget("interfaces", 4 * 1024, n -> {
+        for (int i = 0; i < n; i++) {
+          try (TestInterface result = Benchmarks.testCaseInterfaces(interface1, interface2)) {
+            // closed right away so handles don't pile up waiting for the Cleaner
+          }
+        }
+      });
+    }
+    AllocationBudget.assertBudget("errors", 16 * 1024, n -> {
+      for (int i = 0; i < n; i++) {
+        try {
+          Benchmarks.testCaseErrors();
+        } catch (TestException e) {
+          // expected
+        }
+      }
+    });
+  }
+}
@@ -0,0 +1,39 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import uniffi.coverall.*;
+
+/**
+ * Allocation regression test for primitive-only object methods and throwing functions, measured
+ * with AllocationBudget like TestAllocations.
+ */
+public class TestObjectAllocations {
+  public static void main(String[] args) throws Exception {
+    AllocationBudget.enable();
+
+    AllocationBudget.assertBudget("function", 0, n -> {
+      for (int i = 0; i < n; i++) {
+        Coverall.getNumAlive();
+      }
+    });
+    try (var coveralls = new Coveralls("test_allocations")) {
+      AllocationBudget.assertBudget("method", 0, n -> {
+        for (int i = 0; i < n; i++) {
+          coveralls.strongCount();
+        }
+      });
+      // Methods that can throw, on their success path.
+      AllocationBudget.assertBudget("throwing method", 0, n -> {
+        for (int i = 0; i < n; i++) {
+          coveralls.maybeThrow(false);
+        }
+      });
+      AllocationBudget.assertBudget("throwing method (complex error)", 0, n -> {
+        for (int i = 0; i < n; i++) {
+          coveralls.maybeThrowComplex((byte) 0);
+        }
+      });
+    }
+  }
+}
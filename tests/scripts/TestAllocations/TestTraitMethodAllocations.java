@@ -0,0 +1,37 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import uniffi.trait_methods.*;
+
+/**
+ * Allocation regression test for object methods that go through the callWithHandle variants,
+ * measured with AllocationBudget like TestAllocations. `uniffi_traits` methods always take that
+ * path, even with `inline_calls`. The variants pass the handle and primitive results unboxed, but
+ * the call's lambdas capture the handle and hashCode lifts its u64 through a boxed Long, so the
+ * budgets are loose upper bounds: they catch allocations that grow with the call, not one more
+ * small object per call.
+ */
+public class TestTraitMethodAllocations {
+  public static void main(String[] args) throws Exception {
+    AllocationBudget.enable();
+
+    try (var m = new TraitMethods("yo"); var other = new TraitMethods("z")) {
+      int hash = m.hashCode();
+      AllocationBudget.assertBudget("uniffi_traits hashCode", 128, n -> {
+        for (int i = 0; i < n; i++) {
+          if (m.hashCode() != hash) {
+            throw new AssertionError("hashCode changed");
+          }
+        }
+      });
+      AllocationBudget.assertBudget("uniffi_traits compareTo", 128, n -> {
+        for (int i = 0; i < n; i++) {
+          if (m.compareTo(other) >= 0) {
+            throw new AssertionError("yo < z failed");
+          }
+        }
+      });
+    }
+  }
+}
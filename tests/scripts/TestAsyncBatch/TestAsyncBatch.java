@@ -0,0 +1,95 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import uniffi.fixture.futures.*;
+
+/**
+ * Test `UniffiAsyncBatch`, which drives many async calls from one queue and joins them.
+ */
+public class TestAsyncBatch {
+    public static void main(String[] args) throws Exception {
+        // Results come back in submission order, and incrementally as they're ready.
+        var hops = new AtomicInteger();
+        Executor countingExecutor = runnable -> {
+            hops.incrementAndGet();
+            ForkJoinPool.commonPool().execute(runnable);
+        };
+        var delivered = new ConcurrentHashMap<Integer, String>();
+        var batch = new UniffiAsyncBatch<String>(countingExecutor, delivered::put);
+        for (int i = 0; i < 200; i++) {
+            String name = "shard-" + i;
+            batch.submit(executor -> Futures.sayAfter((short) 20, name, executor));
+        }
+        List<String> results = batch.all().get();
+        assert results.size() == 200;
+        for (int i = 0; i < 200; i++) {
+            assert results.get(i).equals("Hello, shard-" + i + "!");
+            assert delivered.get(i).equals(results.get(i));
+        }
+        assert hops.get() <= 200 : "the batch should share executor hops, took " + hops.get();
+        System.out.println("batch results (" + hops.get() + " hops for 200 calls) ... ok");
+
+        // Methods and void functions work the same way.
+        var megaphone = Futures.newMegaphone();
+        var methods = new UniffiAsyncBatch<String>();
+        methods.submit(executor -> megaphone.sayAfter((short) 1, "Bob", executor));
+        assert methods.all().get().equals(List.of("HELLO, BOB!"));
+        var voids = new UniffiAsyncBatch<Void>();
+        for (int i = 0; i < 10; i++) {
+            voids.submit(executor -> Futures._void(executor));
+        }
+        assert voids.all().get().size() == 10;
+        assert new UniffiAsyncBatch<String>().all().get().isEmpty();
+        System.out.println("methods, void and empty batches ... ok");
+
+        // The first error fails the batch and cancels the rest.
+        var failing = new UniffiAsyncBatch<Object>();
+        List<CompletableFuture<Boolean>> sleeps = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            sleeps.add(failing.submit(executor -> Futures.sleep((short) 5_000, executor)));
+        }
+        failing.submit(executor -> Futures.fallibleMe(true, executor));
+        long start = System.nanoTime();
+        try {
+            failing.all().get();
+            throw new AssertionError("the batch should fail");
+        } catch (ExecutionException e) {
+            assert e.getCause() instanceof MyException : e;
+        }
+        assert TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000 : "the batch should fail fast";
+        for (var sleep : sleeps) {
+            assert sleep.isCancelled();
+        }
+        try {
+            failing.submit(executor -> Futures.alwaysReady(executor));
+            throw new AssertionError("a joined batch shouldn't take more calls");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        System.out.println("fail fast ... ok");
+
+        // Cancelling the batch cancels its calls.
+        var cancelled = new UniffiAsyncBatch<Boolean>();
+        List<CompletableFuture<Boolean>> calls = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            calls.add(cancelled.submit(executor -> Futures.sleep((short) 5_000, executor)));
+        }
+        cancelled.all().cancel(true);
+        for (var call : calls) {
+            assert call.isCancelled();
+        }
+        // Async calls keep working after the cancellations.
+        assert Futures.sayAfter((short) 1, "after").get().equals("Hello, after!");
+        System.out.println("cancelled batch ... ok");
+    }
+}
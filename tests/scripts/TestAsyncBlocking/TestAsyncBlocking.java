@@ -0,0 +1,69 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import uniffi.fixture.futures.*;
+
+/**
+ * Test the blocking variants generated for async functions with `async_blocking_variants`.
+ */
+public class TestAsyncBlocking {
+    public static void main(String[] args) throws Exception {
+        // Ready and pending futures, on a platform thread.
+        assert Futures.alwaysReadyBlocking();
+        Futures._voidBlocking();
+        assert Futures.sayAfterBlocking((short) 1, "Alice").equals("Hello, Alice!");
+        System.out.println("platform thread blocking calls ... ok");
+
+        // Methods, and errors thrown with their own type.
+        var megaphone = Futures.newMegaphone();
+        assert megaphone.sayAfterBlocking((short) 1, "Bob").equals("HELLO, BOB!");
+        Futures.fallibleMeBlocking(false);
+        try {
+            Futures.fallibleMeBlocking(true);
+            throw new AssertionError("fallibleMe(true) should throw");
+        } catch (MyException e) {
+            // Expected
+        }
+        System.out.println("blocking methods and errors ... ok");
+
+        // Many virtual threads parked on pending futures at once.
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> tasks = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                final String name = "vt-" + i;
+                tasks.add(executor.submit(() -> Futures.sayAfterBlocking((short) 10, name)));
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                assert tasks.get(i).get().equals("Hello, vt-" + i + "!");
+            }
+        }
+        System.out.println("virtual thread blocking calls ... ok");
+
+        // Interrupting the calling thread cancels the call and frees the Rust future.
+        var interrupted = new AtomicBoolean();
+        var thread = Thread.ofVirtual().start(() -> {
+            try {
+                Futures.sleepBlocking((short) 5_000);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        Thread.sleep(50);
+        long start = System.nanoTime();
+        thread.interrupt();
+        thread.join();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assert interrupted.get() : "an interrupted blocking call should throw InterruptedException";
+        assert elapsedMillis < 1_000 : "interrupt took " + elapsedMillis + "ms to cancel the call";
+        // Async calls keep working after the cancellation.
+        assert Futures.sayAfterBlocking((short) 1, "post-interrupt").equals("Hello, post-interrupt!");
+        assert Futures.sayAfter((short) 1, "post-interrupt").get().equals("Hello, post-interrupt!");
+        System.out.println("interrupt cancels blocking call ... ok");
+    }
+}
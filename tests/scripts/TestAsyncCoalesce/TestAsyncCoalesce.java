@@ -0,0 +1,60 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import uniffi.fixture.futures.*;
+
+/**
+ * Test `coalesce = true` on `say_after`: concurrent calls with equal arguments share one Rust
+ * future, so they all get the very same lifted String.
+ */
+public class TestAsyncCoalesce {
+    public static void main(String[] args) throws Exception {
+        // Equal arguments share a call; different ones don't.
+        List<CompletableFuture<String>> alices = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            alices.add(Futures.sayAfter((short) 100, "Alice"));
+        }
+        var bob = Futures.sayAfter((short) 100, "Bob");
+        var alice = alices.get(0).get();
+        assert alice.equals("Hello, Alice!");
+        for (var future : alices) {
+            assert future.get() == alice : "coalesced callers should share one result";
+        }
+        assert bob.get().equals("Hello, Bob!");
+        System.out.println("equal arguments share one call ... ok");
+
+        // Once a call is done, the next one starts afresh.
+        var again = Futures.sayAfter((short) 1, "Alice").get();
+        assert again.equals("Hello, Alice!") && again != alice : "a finished call should not be reused";
+        System.out.println("finished calls are not reused ... ok");
+
+        // Cancelling one caller leaves the others waiting on the shared call.
+        var first = Futures.sayAfter((short) 100, "Carol");
+        var second = Futures.sayAfter((short) 100, "Carol");
+        assert first.cancel(true);
+        assert second.get().equals("Hello, Carol!");
+        System.out.println("partial cancellation ... ok");
+
+        // Cancelling every caller cancels the shared call, and the next caller starts a new one.
+        for (int i = 0; i < 50; i++) {
+            var a = Futures.sayAfter((short) 50, "Dave");
+            var b = Futures.sayAfter((short) 50, "Dave");
+            a.cancel(true);
+            b.cancel(true);
+            assert a.isCancelled() && b.isCancelled();
+        }
+        assert Futures.sayAfter((short) 1, "Dave").get().equals("Hello, Dave!");
+        System.out.println("full cancellation ... ok");
+
+        // Functions without `coalesce` keep their own calls.
+        var sleeps = List.of(Futures.sleep((short) 10), Futures.sleep((short) 10));
+        for (var sleep : sleeps) {
+            assert sleep.get();
+        }
+        System.out.println("uncoalesced functions ... ok");
+    }
+}
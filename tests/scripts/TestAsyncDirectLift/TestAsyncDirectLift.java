@@ -0,0 +1,36 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import uniffi.fixture.futures.*;
+
+/**
+ * Test `async_lift_executor = "direct"`: results are lifted on the poll thread that completed the
+ * Rust future, while polls still go through the common pool.
+ */
+public class TestAsyncDirectLift {
+    public static void main(String[] args) throws Exception {
+        // Timeouts so a poll that deadlocks on the Rust scheduler fails the test instead of hanging.
+        assert Futures.sayAfter((short) 10, "direct").get(10, TimeUnit.SECONDS).equals("Hello, direct!");
+
+        String lifter = Futures.sayAfter((short) 10, "lift")
+            .thenApply(result -> Thread.currentThread().getName())
+            .get(10, TimeUnit.SECONDS);
+        assert lifter.startsWith("ForkJoinPool.commonPool")
+            : "expected the lift on the poll thread, got " + lifter;
+        System.out.println("direct lift on the poll thread ... ok");
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(Futures.sayAfter((short) 1, "many-" + i));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            assert futures.get(i).get(10, TimeUnit.SECONDS).equals("Hello, many-" + i + "!");
+        }
+        System.out.println("concurrent direct lifts ... ok");
+    }
+}
@@ -0,0 +1,100 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import uniffi.fixture.futures.*;
+
+/**
+ * Test the configured default executors (a dedicated poll pool and virtual-thread lifts), and
+ * overriding them at runtime with UniffiAsyncHelpers.setDefault*Executor.
+ */
+public class TestAsyncExecutors {
+    static long threadsNamed(String prefix) {
+        return Thread.getAllStackTraces().keySet().stream()
+            .filter(t -> t.getName().startsWith(prefix))
+            .count();
+    }
+
+    // Name of the thread that completed `future`, from a stage added while it was still pending.
+    static String completingThread(CompletableFuture<String> future) throws Exception {
+        return future.thenApply(result -> Thread.currentThread().toString()).get();
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Polls run on the dedicated pool, which never grows past async_threads.
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(Futures.sayAfter((short) 10, "pool-" + i));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            assert futures.get(i).get().equals("Hello, pool-" + i + "!");
+        }
+        long pollThreads = threadsNamed("uniffi-async-") - threadsNamed("uniffi-async-lift-");
+        assert pollThreads > 0 && pollThreads <= 2 : "expected 1-2 dedicated poll threads, found " + pollThreads;
+        System.out.println("dedicated poll pool ... ok");
+
+        // Results are lifted on their own virtual threads.
+        String lifter = completingThread(Futures.sayAfter((short) 10, "lift"));
+        assert lifter.startsWith("VirtualThread") && lifter.contains("uniffi-async-lift-")
+            : "expected a lift virtual thread, got " + lifter;
+        System.out.println("virtual thread lifts ... ok");
+
+        // An executor passed by the caller is used for both, as before.
+        var passed = new AtomicInteger();
+        Executor passedExecutor = task -> {
+            passed.incrementAndGet();
+            ForkJoinPool.commonPool().execute(task);
+        };
+        assert Futures.sayAfter((short) 1, "passed", passedExecutor).get().equals("Hello, passed!");
+        assert passed.get() > 0 : "the passed executor should be used";
+        System.out.println("passed executor ... ok");
+
+        // Runtime overrides replace the configured defaults, and null restores them.
+        var overridden = new AtomicInteger();
+        UniffiAsyncHelpers.setDefaultExecutor(task -> {
+            overridden.incrementAndGet();
+            ForkJoinPool.commonPool().execute(task);
+        });
+        try {
+            String thread = completingThread(Futures.sayAfter((short) 10, "override"));
+            assert overridden.get() > 0 : "the default executor override should be used";
+            assert thread.contains("ForkJoinPool.commonPool") : "lift should follow the override, got " + thread;
+
+            // A lift-only override keeps the polls on the poll executor.
+            UniffiAsyncHelpers.setDefaultLiftExecutor(Runnable::run);
+            int before = overridden.get();
+            assert Futures.sayAfter((short) 10, "lift-override").get().equals("Hello, lift-override!");
+            assert overridden.get() > before : "polls should stay on the poll executor override";
+        } finally {
+            UniffiAsyncHelpers.setDefaultExecutor(null);
+        }
+        int before = overridden.get();
+        lifter = completingThread(Futures.sayAfter((short) 10, "restored"));
+        assert overridden.get() == before : "a cleared override should no longer be used";
+        assert lifter.contains("uniffi-async-lift-") : "expected the configured lift executor, got " + lifter;
+        System.out.println("runtime overrides ... ok");
+
+        // A rejected poll fails the call, without freeing the Rust future from inside the wake.
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("rejected");
+        };
+        var rejected = Futures.sayAfter((short) 10, "rejected", rejecting);
+        try {
+            rejected.get(10, TimeUnit.SECONDS);
+            throw new AssertionError("a rejected poll should fail the call");
+        } catch (ExecutionException e) {
+            assert e.getCause() instanceof RejectedExecutionException : e;
+        }
+        assert Futures.sayAfter((short) 10, "after").get(10, TimeUnit.SECONDS).equals("Hello, after!");
+        System.out.println("rejecting executor ... ok");
+    }
+}
@@ -0,0 +1,41 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import uniffi.fixture.futures.*;
+
+/**
+ * Checks the ready-on-first-poll fast path for async calls.
+ *
+ * A future that's ready on its first poll must come back already completed, without a hop onto
+ * the executor. `cargo bench -- async-fast-path` times it against pending calls.
+ */
+public class TestAsyncFastPath {
+  public static void main(String[] args) throws Exception {
+    var hops = new AtomicInteger();
+    Executor countingExecutor = runnable -> {
+      hops.incrementAndGet();
+      ForkJoinPool.commonPool().execute(runnable);
+    };
+
+    // A ready future completes on the calling thread and never touches the executor.
+    for (int i = 0; i < 1_000; i++) {
+      var ready = Futures.alwaysReady(countingExecutor);
+      assert ready.isDone() : "a ready future should come back completed";
+      assert ready.getNow(false);
+      var done = Futures._void(countingExecutor);
+      assert done.isDone() : "a ready void future should come back completed";
+    }
+    assert hops.get() == 0 : "ready futures hopped onto the executor " + hops.get() + " times";
+    System.out.println("ready on first poll completes inline ... ok");
+
+    // A pending future still resumes on the executor.
+    var pending = Futures.sayAfter((short) 1, "pending", countingExecutor);
+    assert pending.get().equals("Hello, pending!");
+    assert hops.get() > 0 : "a pending future should resume on the executor";
+    System.out.println("pending future resumes on executor ... ok");
+  }
+}
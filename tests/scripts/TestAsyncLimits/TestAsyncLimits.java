@@ -0,0 +1,70 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import uniffi.fixture.futures.*;
+
+/**
+ * Test the component-wide (8) and per-function (`sleep`, 2) in-flight limits, with calls over
+ * the limit queued.
+ */
+public class TestAsyncLimits {
+    static UniffiAsyncLimiter limiter(String name) {
+        return UniffiAsyncLimiter.all().stream()
+            .filter(l -> l.name().equals(name))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    public static void main(String[] args) throws Exception {
+        var component = limiter("futures");
+        var sleep = limiter("sleep");
+        assert component.limit() == 8 && sleep.limit() == 2 : UniffiAsyncLimiter.all().toString();
+
+        // Calls over the component limit wait in its queue, and all complete in the end.
+        List<CompletableFuture<String>> greetings = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            greetings.add(Futures.sayAfter((short) 100, "limited-" + i));
+        }
+        assert component.inFlight() == 8 : component.toString();
+        assert component.queued() == 32 : component.toString();
+        for (int i = 0; i < greetings.size(); i++) {
+            assert greetings.get(i).get().equals("Hello, limited-" + i + "!");
+        }
+        assert component.inFlight() == 0 && component.queued() == 0 : component.toString();
+        System.out.println("component limit ... ok");
+
+        // `sleep` has its own, lower limit, which its calls go through before the component's.
+        long start = System.nanoTime();
+        List<CompletableFuture<Boolean>> sleeps = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            sleeps.add(Futures.sleep((short) 50));
+        }
+        assert sleep.inFlight() == 2 && sleep.queued() == 8 : sleep.toString();
+        assert component.inFlight() == 2 : component.toString();
+        for (var future : sleeps) {
+            future.get();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assert elapsedMillis >= 250 : "10 sleeps 2 at a time finished in " + elapsedMillis + "ms";
+        System.out.println("function limit ... ok");
+
+        // Cancelling queued calls frees their place without starting them.
+        List<CompletableFuture<Boolean>> cancelled = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            cancelled.add(Futures.sleep((short) 50));
+        }
+        for (int i = 2; i < cancelled.size(); i++) {
+            cancelled.get(i).cancel(true);
+        }
+        cancelled.get(0).get();
+        cancelled.get(1).get();
+        Futures.sayAfter((short) 1, "after-cancel").get();
+        assert sleep.inFlight() == 0 && sleep.queued() == 0 : sleep.toString();
+        assert component.inFlight() == 0 && component.queued() == 0 : component.toString();
+        System.out.println("cancelled queued calls ... ok");
+    }
+}
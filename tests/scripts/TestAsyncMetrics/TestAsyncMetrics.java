@@ -0,0 +1,141 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import uniffi.fixture.futures.*;
+
+/**
+ * Test the counters and histograms recorded with `async_metrics`, and reading them over JMX.
+ */
+public class TestAsyncMetrics {
+    static UniffiAsyncMetrics metrics(String name) {
+        return UniffiAsyncMetrics.all().stream()
+            .filter(m -> m.getName().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("no metrics for " + name));
+    }
+
+    // A call is recorded right after its future completes, so give it a moment.
+    static void awaitIdle(UniffiAsyncMetrics metrics) throws InterruptedException {
+        for (int i = 0; i < 100 && metrics.getInFlight() != 0; i++) {
+            Thread.sleep(10);
+        }
+        assert metrics.getInFlight() == 0 : metrics;
+    }
+
+    static class Parser implements AsyncParser {
+        @Override
+        public CompletableFuture<String> asString(int delayMs, int value) {
+            return CompletableFuture.supplyAsync(() -> Integer.toString(value),
+                CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public CompletableFuture<Integer> tryFromString(int delayMs, String value) {
+            return CompletableFuture.completedFuture(Integer.parseInt(value));
+        }
+
+        @Override
+        public CompletableFuture<Void> delay(int delayMs) {
+            return CompletableFuture.runAsync(() -> {},
+                CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public CompletableFuture<Void> tryDelay(String delayMs) {
+            return delay(Integer.parseInt(delayMs));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Pending calls are polled until ready, and wait in Rust for most of their time.
+        var sayAfter = metrics("say_after");
+        for (int i = 0; i < 10; i++) {
+            assert Futures.sayAfter((short) 20, "Alice").get().equals("Hello, Alice!");
+        }
+        awaitIdle(sayAfter);
+        assert sayAfter.getStarted() == 10 && sayAfter.getCompleted() == 10 : sayAfter;
+        assert sayAfter.getCallNanos().getCount() == 10;
+        assert sayAfter.getCallNanos().getP50() >= TimeUnit.MILLISECONDS.toNanos(20) : sayAfter;
+        assert sayAfter.getWakeToCompletionNanos().getCount() == 10;
+        assert sayAfter.getWakeToCompletionNanos().getMax() <= sayAfter.getCallNanos().getMax();
+        assert sayAfter.getPollsPerCall().getP50() >= 2 : "a pending future is polled again once woken";
+        System.out.println("completed calls ... ok");
+
+        // A future that's ready right away is polled once.
+        var alwaysReady = metrics("always_ready");
+        assert Futures.alwaysReady().get();
+        awaitIdle(alwaysReady);
+        assert alwaysReady.getCompleted() == 1 && alwaysReady.getPollsPerCall().getMax() == 1 : alwaysReady;
+        System.out.println("ready calls ... ok");
+
+        // Errors and cancellations.
+        var fallibleMe = metrics("fallible_me");
+        try {
+            Futures.fallibleMe(true).get();
+            throw new AssertionError("fallibleMe(true) should throw");
+        } catch (java.util.concurrent.ExecutionException e) {
+            // Expected
+        }
+        awaitIdle(fallibleMe);
+        assert fallibleMe.getFailed() == 1 && fallibleMe.getCompleted() == 0 : fallibleMe;
+        var sleep = metrics("sleep");
+        var sleeping = Futures.sleep((short) 5_000);
+        assert sleep.getInFlight() == 1 : sleep;
+        sleeping.cancel(true);
+        assert sleep.getCancelled() == 1 && sleep.getInFlight() == 0 : sleep;
+        assert sleep.getCallNanos().getCount() == 0 : "cancelled calls have no latency";
+        System.out.println("failed and cancelled calls ... ok");
+
+        // Futures returned to Rust by async callbacks.
+        var foreign = metrics("foreign futures");
+        assert Futures.asStringUsingTrait(new Parser(), 10, 42).get().equals("42");
+        assert foreign.getCompleted() == 1 && foreign.getInFlight() == 0 : foreign;
+        assert foreign.getCallNanos().getP50() >= TimeUnit.MILLISECONDS.toNanos(10) : foreign;
+        System.out.println("foreign futures ... ok");
+
+        // Every instance is readable over JMX.
+        UniffiAsyncMetrics.registerMBeans();
+        UniffiAsyncMetrics.registerMBeans();
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var names = server.queryNames(new ObjectName("uniffi.fixture.futures:type=UniffiAsyncMetrics,*"), null);
+        assert names.size() == UniffiAsyncMetrics.all().size() : names;
+        var name = new ObjectName("uniffi.fixture.futures:type=UniffiAsyncMetrics,component=futures,name=\"say_after\"");
+        assert (Long) server.getAttribute(name, "Completed") == 10;
+        var callNanos = (CompositeData) server.getAttribute(name, "CallNanos");
+        assert (Long) callNanos.get("count") == 10;
+        assert (Long) callNanos.get("p99") == sayAfter.getCallNanos().getP99();
+        server.invoke(name, "reset", null, null);
+        assert sayAfter.getCompleted() == 0 && sayAfter.getCallNanos().getCount() == 0;
+        System.out.println("JMX ... ok");
+
+        // Waiting for the poll executor after Rust wakes the call is part of wake-to-completion.
+        var slowExecutor = CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS);
+        assert Futures.sayAfter((short) 20, "Bob", slowExecutor).get().equals("Hello, Bob!");
+        awaitIdle(sayAfter);
+        assert sayAfter.getWakeToCompletionNanos().getCount() == 1 : sayAfter;
+        assert sayAfter.getWakeToCompletionNanos().getMax() >= TimeUnit.MILLISECONDS.toNanos(40) : sayAfter;
+        System.out.println("slow poll executor ... ok");
+
+        // Blocking variants are recorded with the async function's metrics.
+        sayAfter.reset();
+        assert Futures.sayAfterBlocking((short) 20, "Carol").equals("Hello, Carol!");
+        assert sayAfter.getStarted() == 1 && sayAfter.getCompleted() == 1 && sayAfter.getInFlight() == 0 : sayAfter;
+        assert sayAfter.getCallNanos().getP50() >= TimeUnit.MILLISECONDS.toNanos(20) : sayAfter;
+        assert sayAfter.getWakeToCompletionNanos().getCount() == 1 : sayAfter;
+        assert sayAfter.getPollsPerCall().getMax() >= 2 : sayAfter;
+        try {
+            Futures.fallibleMeBlocking(true);
+            throw new AssertionError("fallibleMeBlocking(true) should throw");
+        } catch (MyException e) {
+            // Expected
+        }
+        assert fallibleMe.getFailed() == 2 && fallibleMe.getInFlight() == 0 : fallibleMe;
+        System.out.println("blocking variants ... ok");
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import uniffi.arithmetic.*;
+
+/**
+ * Test that functions marked `blocking` run on the blocking pool when called from a virtual
+ * thread, and directly when called from a platform thread.
+ */
+public class TestBlockingCalls {
+    static long blockingThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+            .filter(t -> t.getName().startsWith("uniffi-blocking-"))
+            .count();
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Platform threads take the direct path and never start the pool.
+        assert Arithmetic.add(2L, 4L) == 6L : "add(2, 4) should equal 6";
+        assert Arithmetic.sub(4L, 2L) == 2L : "sub(4, 2) should equal 2";
+        assert blockingThreads() == 0 : "platform thread calls should not start the blocking pool";
+        System.out.println("platform thread calls ... ok");
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 100; t++) {
+                final long n = t;
+                tasks.add(executor.submit(() -> {
+                    for (long i = 0; i < 100; i++) {
+                        assert Arithmetic.add(n, i) == n + i : "add(n, i) should equal n + i";
+                    }
+                    // Errors thrown on the pool reach the caller with their own type.
+                    try {
+                        Arithmetic.sub(0L, n + 1);
+                        throw new AssertionError("Subtraction causing negative should throw IntegerOverflow");
+                    } catch (uniffi.arithmetic.ArithmeticException.IntegerOverflow e) {
+                        // Expected
+                    }
+                    // Not blocking, so this one runs on the virtual thread.
+                    assert Arithmetic.equal(n, n) : "equal(n, n) should be true";
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+        long threads = blockingThreads();
+        assert threads > 0 : "virtual thread calls should run on the blocking pool";
+        assert threads <= 2 : "blocking pool should be bounded by blocking_threads, got " + threads;
+        System.out.println("virtual thread calls ... ok");
+
+        // An interrupt doesn't abandon the call, and is still set when it returns.
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread vt = Thread.ofVirtual().start(() -> {
+            try {
+                Thread.currentThread().interrupt();
+                assert Arithmetic.add(1L, 1L) == 2L : "add(1, 1) should equal 2";
+                assert Thread.currentThread().isInterrupted() : "interrupt should be preserved";
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        vt.join();
+        if (failure.get() != null) {
+            throw new AssertionError("interrupted call failed", failure.get());
+        }
+        System.out.println("interrupted virtual thread ... ok");
+    }
+}
@@ -0,0 +1,100 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import uniffi.benchmarks.*;
+
+public class TestCallScope {
+  static final int CALLS = 100_000;
+
+  static void runCalls() {
+    for (int i = 0; i < CALLS; i++) {
+      Benchmarks.testCaseCallOnly();
+      assert Benchmarks.testCaseStrings("a", "b") != null;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    // Calls inside a scope take their status and struct returns from it.
+    try (UniffiCallScope scope = UniffiCallScope.open()) {
+      runCalls();
+    }
+    System.out.println("calls in scope ... ok");
+
+    // A chunk smaller than a RustBuffer forces every struct return into its own allocation.
+    try (UniffiCallScope scope = UniffiCallScope.open(8)) {
+      runCalls();
+    }
+    System.out.println("calls in scope with oversized returns ... ok");
+
+    // Nested scopes restore the enclosing one on close, and calls keep working after both.
+    try (UniffiCallScope outer = UniffiCallScope.open()) {
+      try (UniffiCallScope inner = UniffiCallScope.open()) {
+        runCalls();
+      }
+      runCalls();
+    }
+    runCalls();
+    System.out.println("nested scopes ... ok");
+
+    // Closing out of order is rejected without closing anything.
+    UniffiCallScope outer = UniffiCallScope.open();
+    UniffiCallScope inner = UniffiCallScope.open();
+    try {
+      outer.close();
+      throw new AssertionError("closing an outer scope before the inner one should fail");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+    inner.close();
+    outer.close();
+    outer.close();
+    System.out.println("out of order close ... ok");
+
+    // A closed scope can't be allocated from.
+    try {
+      outer.allocate(8);
+      throw new AssertionError("allocating from a closed scope should fail");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+    System.out.println("closed scope ... ok");
+
+    // Scopes are confined to the thread that opened them, and only apply there.
+    try (UniffiCallScope scope = UniffiCallScope.open();
+        var executor = Executors.newSingleThreadExecutor()) {
+      Future<?> other = executor.submit(() -> {
+        runCalls();
+        try {
+          scope.allocate(8);
+          throw new AssertionError("allocating from another thread should fail");
+        } catch (IllegalStateException e) {
+          // Expected
+        }
+      });
+      other.get();
+    }
+    System.out.println("thread confinement ... ok");
+
+    // Statuses from a scope opened on a virtual thread must not end up in the shared pool.
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<?>> tasks = new ArrayList<>();
+      for (int t = 0; t < 16; t++) {
+        tasks.add(executor.submit(() -> {
+          try (UniffiCallScope scope = UniffiCallScope.open()) {
+            runCalls();
+          }
+          runCalls();
+        }));
+      }
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+    }
+    System.out.println("virtual thread scopes ... ok");
+  }
+}
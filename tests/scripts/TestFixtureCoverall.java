@@ -380,6 +380,12 @@ public class TestFixtureCoverall {
       assert Coverall.ancestorNames(traits.get(0)).equals(Arrays.asList("node-2", "node-kt"));
       assert Coverall.ancestorNames(traits.get(1)).equals(Arrays.asList("node-kt"));
       assert Coverall.ancestorNames(javaNode).isEmpty();
+      // Lowering the same Java object again reuses its handle, the one Rust already holds for
+      // the parent set above, instead of adding an entry.
+      long handle = FfiConverterTypeNodeTrait.INSTANCE.lower(javaNode);
+      assert FfiConverterTypeNodeTrait.INSTANCE.lower(javaNode) == handle;
+      assert FfiConverterTypeNodeTrait.INSTANCE.lift(handle) == javaNode;
+      assert FfiConverterTypeNodeTrait.INSTANCE.lift(handle) == javaNode;
 
       traits.get(1).setParent(null);
       javaNode.setParent(traits.get(0));
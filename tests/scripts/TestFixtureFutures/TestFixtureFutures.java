@@ -450,17 +450,9 @@ public class TestFixtureFutures {
         System.out.println("immediate cancellation (100 iterations) ... ok");
       }
 
-      // There is a theoretical race in our async code: if cancel() fires between the
-      // isCancelled() check and the freeFunc call in whenComplete, both paths call
-      // rust_future_free on the same handle. Currently this is safe because uniffi's
-      // rust_future_free is effectively idempotent:
-      //   - Handle::into_arc_borrowed increments the Arc refcount before creating the Arc,
-      //     so the RustFuture allocation stays alive across multiple free calls.
-      //   - RustFuture::free() just clears internal state (future=None, result=None) and
-      //     cancels the scheduler; the second call is a no-op.
-      //
-      // This test remains in place to catch any regression if uniffi changes its handle
-      // management to be less tolerant of double-free.
+      // Cancelling around the time a future completes races cancel() against the poller
+      // completing and freeing the Rust future. The poller serializes both under its lock
+      // and frees the future exactly once, whichever side gets there first.
       {
         for (int i = 0; i < 200; i++) {
             // 1ms sleep means the future may complete around the same time we cancel
@@ -477,14 +469,9 @@ public class TestFixtureFutures {
         System.out.println("double-free race (200 iterations) ... ok");
       }
 
-      // When a future is cancelled, our pollUntilReady chain may still have an in-flight
-      // poll when freeFunc is called. The orphaned chain can then call rust_future_poll on
-      // the freed handle. Currently this is safe because uniffi's Scheduler enters the
-      // Cancelled state on free, and any subsequent poll short-circuits to Ready via
-      // is_cancelled() without touching the inner future.
-      //
-      // This test remains in place to catch any regression if uniffi changes its
-      // post-free poll behavior.
+      // Cancelling while a poll is in flight frees the Rust future under the poller's lock,
+      // and the pending wake then only drops the continuation handle instead of polling the
+      // freed future again.
       {
         for (int i = 0; i < 50; i++) {
             // brokenSleep calls the waker multiple times, creating multiple polls.
@@ -497,7 +484,7 @@ public class TestFixtureFutures {
             job.cancel(true);
             assert job.isCancelled();
         }
-        // Small delay to let any orphaned poll chains settle
+        // Small delay to let the pending wakes settle
         TestFixtureFutures.delay(200).get();
         // Verify the system is still functional
         var result = Futures.sayAfter((short)1, "post-poll-free").get();
@@ -631,7 +618,7 @@ public class TestFixtureFutures {
       }
 
       // --- Async callback sustained success load test ---
-      // Each async trait callback allocates Arena.ofAuto() for the result struct.
+      // Each async trait callback takes a result struct from the result slab.
       // Validates no handle leaks or OOM under sustained successful calls.
       {
         class LoadParser implements AsyncParser {
@@ -668,6 +655,76 @@ public class TestFixtureFutures {
 
         System.out.println(MessageFormat.format("async callback sustained load ({0} calls) ... ok", count));
       }
+
+      // --- Many async callbacks in flight at once ---
+      // Java futures are reported to Rust by whichever thread completes them, so pending
+      // callbacks must not tie up a thread each (or make the common pool spawn compensating ones).
+      {
+        int inFlight = 100_000;
+        var gate = new CompletableFuture<Void>();
+        var started = new java.util.concurrent.atomic.AtomicInteger();
+        class GatedParser implements AsyncParser {
+          @Override
+          public CompletableFuture<String> asString(int delayMs, int value) {
+            started.incrementAndGet();
+            return gate.thenApply(nothing -> Integer.toString(value));
+          }
+          @Override
+          public CompletableFuture<Integer> tryFromString(int delayMs, String value) {
+            return gate.thenApply(nothing -> Integer.parseInt(value));
+          }
+          @Override
+          public CompletableFuture<Void> delay(int delayMs) {
+            return gate;
+          }
+          @Override
+          public CompletableFuture<Void> tryDelay(String delayMs) {
+            return gate;
+          }
+        }
+
+        var gatedParser = new GatedParser();
+        int threadsBefore = Thread.activeCount();
+        var jobs = new java.util.ArrayList<CompletableFuture<String>>(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+          jobs.add(Futures.asStringUsingTrait(gatedParser, 0, i));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (started.get() < inFlight) {
+          assert System.nanoTime() < deadline
+              : MessageFormat.format("only {0} of {1} callbacks started", started.get(), inFlight);
+          Thread.sleep(10);
+        }
+        int threadGrowth = Thread.activeCount() - threadsBefore;
+        assert threadGrowth < 64
+            : MessageFormat.format("{0} threads started for {1} pending callbacks", threadGrowth, inFlight);
+
+        // Cancel every tenth Rust future while its callback is pending. Rust drops the foreign
+        // future, which cancels the Java one and reports that back exactly once.
+        for (int i = 0; i < inFlight; i += 10) {
+          jobs.get(i).cancel(true);
+        }
+        gate.complete(null);
+        for (int i = 0; i < inFlight; i++) {
+          if (i % 10 == 0) {
+            assert jobs.get(i).isCancelled() : "job " + i + " should be cancelled";
+          } else {
+            var result = jobs.get(i).get(60, TimeUnit.SECONDS);
+            assert result.equals(Integer.toString(i)) : "Wrong result for job " + i + ": " + result;
+          }
+        }
+
+        // Rust drops each foreign future once it's done with it, which may trail the results.
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (UniffiAsyncHelpers.uniffiForeignFutureHandleCount() != 0) {
+          assert System.nanoTime() < deadline
+              : MessageFormat.format("Leaked {0} handles after {1} concurrent async callbacks",
+                  UniffiAsyncHelpers.uniffiForeignFutureHandleCount(), inFlight);
+          Thread.sleep(10);
+        }
+
+        System.out.println(MessageFormat.format("concurrent async callbacks ({0} in flight) ... ok", inFlight));
+      }
     } finally {
       // bring down the scheduler, if it's not shut down it'll hold the main thread open.
       scheduler.shutdown();
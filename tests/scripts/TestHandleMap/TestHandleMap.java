@@ -0,0 +1,13 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+/**
+ * Test the generated UniffiHandleMap. The map is package-private, so the checks live in
+ * HandleMapChecks, next to this file in the bindings' package.
+ */
+public class TestHandleMap {
+  public static void main(String[] args) throws Exception {
+    uniffi.benchmarks.HandleMapChecks.run();
+  }
+}
@@ -0,0 +1,118 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package uniffi.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Checks for UniffiHandleMap, in the bindings' package to reach the package-private map.
+ */
+public class HandleMapChecks {
+  static void assertInvalid(Runnable call, String what) {
+    try {
+      call.run();
+      throw new AssertionError(what + " should throw");
+    } catch (InternalException e) {
+      // Expected
+    }
+  }
+
+  public static void run() throws Exception {
+    // A clone is another reference to the same entry, which stays until the last is dropped.
+    var map = new UniffiHandleMap<Object>();
+    var obj = new Object();
+    long handle = map.insert(obj);
+    assert (handle & 1L) == 1L : "foreign handles are odd";
+    assert map.clone(handle) == handle;
+    assert map.size() == 1 : "a clone isn't another entry";
+    assert map.remove(handle) == obj;
+    assert map.get(handle) == obj : "the clone still holds the entry";
+    assert map.remove(handle) == obj;
+    assert map.size() == 0;
+    assertInvalid(() -> map.get(handle), "get after the last remove");
+    assertInvalid(() -> map.remove(handle), "remove after the last remove");
+    assertInvalid(() -> map.clone(handle), "clone after the last remove");
+    System.out.println("clone and remove ... ok");
+
+    // A freed slot is reused, but a handle from before doesn't match it.
+    var reused = new Object();
+    long newHandle = map.insert(reused);
+    assert newHandle != handle;
+    assert map.get(newHandle) == reused;
+    assertInvalid(() -> map.get(handle), "get with a stale handle");
+    assertInvalid(() -> map.remove(handle), "remove with a stale handle");
+    assertInvalid(() -> map.clone(handle), "clone with a stale handle");
+    assert map.get(newHandle) == reused : "stale handles leave the new entry alone";
+    assertInvalid(() -> map.get(newHandle + 1L), "get with an even handle");
+    assertInvalid(() -> map.get(newHandle + (1_000L << 1)), "get past the slab");
+    assert map.remove(newHandle) == reused;
+    System.out.println("stale handles ... ok");
+
+    // A deduplicating map takes another reference to an object's entry.
+    var dedup = new UniffiHandleMap<Object>(true);
+    long first = dedup.insertOrClone(obj);
+    assert dedup.insertOrClone(obj) == first;
+    assert dedup.size() == 1;
+    dedup.remove(first);
+    dedup.remove(first);
+    assert dedup.size() == 0;
+    long again = dedup.insertOrClone(obj);
+    assert again != first : "a freed entry isn't reused by identity";
+    assertInvalid(() -> dedup.get(first), "get with a deduplicated stale handle");
+    dedup.remove(again);
+    System.out.println("deduplication ... ok");
+
+    // Threads clone and drop the same handle while the first reference keeps it live.
+    int threads = 8;
+    int rounds = 100_000;
+    var shared = new Object();
+    long sharedHandle = map.insert(shared);
+    var barrier = new CyclicBarrier(threads);
+    List<Thread> workers = new ArrayList<>();
+    List<Throwable> failures = java.util.Collections.synchronizedList(new ArrayList<>());
+    for (int t = 0; t < threads; t++) {
+      Thread worker = new Thread(() -> {
+        try {
+          barrier.await();
+          for (int i = 0; i < rounds; i++) {
+            long cloned = map.clone(sharedHandle);
+            if (map.get(cloned) != shared || map.remove(cloned) != shared) {
+              throw new AssertionError("a clone lost its entry");
+            }
+            // Churn other slots too, so freed slots are reused under the shared one.
+            long other = map.insert(new Object());
+            map.remove(other);
+          }
+        } catch (Throwable e) {
+          failures.add(e);
+        }
+      });
+      worker.start();
+      workers.add(worker);
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    assert failures.isEmpty() : failures;
+    assert map.size() == 1 : "only the shared entry is left";
+    assert map.remove(sharedHandle) == shared;
+    assertInvalid(() -> map.get(sharedHandle), "get after the shared entry is freed");
+    assert map.size() == 0;
+
+    // Handles of live entries are distinct.
+    var handles = new HashSet<Long>();
+    for (int i = 0; i < 1_000; i++) {
+      assert handles.add(map.insert(new Object()));
+    }
+    for (long live : handles) {
+      map.remove(live);
+    }
+    assert map.size() == 0;
+    System.out.println("concurrent clones ... ok");
+  }
+}
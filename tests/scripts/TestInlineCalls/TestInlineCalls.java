@@ -0,0 +1,52 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import uniffi.sprites.*;
+
+/**
+ * Test that inline_calls=true works correctly.
+ *
+ * Functions and methods are generated as straight-line bodies instead of going through the
+ * call helper lambdas, so this covers functions, methods, constructors, and use-after-close.
+ */
+public class TestInlineCalls {
+  public static void main(String[] args) throws Exception {
+    try (var s = new Sprite(new Point(0.0, 1.0))) {
+      assert s.getPosition().x() == 0.0;
+      assert s.getPosition().y() == 1.0;
+
+      s.moveTo(new Point(1.0, 2.0));
+      s.moveBy(new Vector(-4.0, 2.0));
+      assert s.getPosition().x() == -3.0;
+      assert s.getPosition().y() == 4.0;
+
+      // The handle stays valid across many calls
+      for (int i = 0; i < 10_000; i++) {
+        s.moveBy(new Vector(1.0, 0.0));
+      }
+      assert s.getPosition().x() == 9_997.0;
+    }
+
+    // Use-after-close still throws, the call counter is checked before the downcall
+    {
+      var s = new Sprite(new Point(0.0, 0.0));
+      s.close();
+      try {
+        s.getPosition();
+        throw new RuntimeException("Should not be able to call after close");
+      } catch (IllegalStateException e) {
+        // expected
+      }
+    }
+
+    try (var srel = Sprite.newRelativeTo(new Point(0.0, 1.0), new Vector(1.0, 1.5))) {
+      assert srel.getPosition().x() == 1.0;
+      assert srel.getPosition().y() == 2.5;
+    }
+
+    Point translated = Sprites.translate(new Point(1.0, 2.0), new Vector(3.0, 4.0));
+    assert translated.x() == 4.0;
+    assert translated.y() == 6.0;
+  }
+}
@@ -0,0 +1,32 @@
+import uniffi.arithmetic.*;
+
+/**
+ * Test that lazy_linking=true works correctly.
+ *
+ * With lazy linking each downcall handle is linked, and its checksum verified, the first time
+ * the function is called. Every call below is the first use of its symbol.
+ */
+public class TestLazyLinking {
+    public static void main(String[] args) throws Exception {
+        UniffiInitializer.ensureInitialized();
+
+        assert Arithmetic.add(2L, 4L) == 6L : "add(2, 4) should equal 6";
+        assert Arithmetic.sub(4L, 2L) == 2L : "sub(4, 2) should equal 2";
+        assert Arithmetic.div(8L, 4L) == 2L : "div(8, 4) should equal 2";
+        assert Arithmetic.equal(2L, 2L) : "equal(2, 2) should be true";
+        assert !Arithmetic.equal(2L, 3L) : "equal(2, 3) should be false";
+
+        // Errors are lifted through RustBuffer alloc/free, which are linked lazily too
+        try {
+            Arithmetic.sub(0L, 2L);
+            assert false : "Subtraction causing negative should throw IntegerOverflow";
+        } catch (uniffi.arithmetic.ArithmeticException.IntegerOverflow e) {
+            // Expected
+        }
+
+        // Linked handles are reused on later calls
+        for (long i = 0; i < 1000; i++) {
+            assert Arithmetic.add(i, 1L) == i + 1 : "add(i, 1) should equal i + 1";
+        }
+    }
+}
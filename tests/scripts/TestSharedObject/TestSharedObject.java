@@ -0,0 +1,92 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import uniffi.coverall.*;
+
+/**
+ * Test closing a `shared_object`, whose calls are counted with the striped counter.
+ */
+public class TestSharedObject {
+  static void assertClosed(Runnable call) {
+    try {
+      call.run();
+      throw new AssertionError("calls after close() should throw");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+  }
+
+  static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    // Closing while a call is in flight leaves the free to that call.
+    var coveralls = new Coveralls("test_shared_close");
+    assert Coverall.getNumAlive() == 1;
+    var inCall = new CountDownLatch(1);
+    var closed = new CountDownLatch(1);
+    var call = CompletableFuture.runAsync(() -> coveralls.callWithHandle(handle -> {
+      inCall.countDown();
+      await(closed);
+      assert Coverall.getNumAlive() == 1 : "freed during a call";
+      // Drop the reference the call took on the Rust object.
+      FfiConverterTypeCoveralls.INSTANCE.lift(handle).close();
+      return null;
+    }));
+    await(inCall);
+    coveralls.close();
+    assertClosed(() -> coveralls.strongCount());
+    assert Coverall.getNumAlive() == 1 : "freed with a call in flight";
+    closed.countDown();
+    call.join();
+    assert Coverall.getNumAlive() == 0 : "not freed after the last call";
+    coveralls.close();
+    assertClosed(() -> coveralls.getName());
+    assert Coverall.getNumAlive() == 0;
+    System.out.println("close with a call in flight ... ok");
+
+    // Threads keep calling while another closes, each until its calls start to throw.
+    int threads = 8;
+    for (int round = 0; round < 20; round++) {
+      var shared = new Coveralls("test_shared_race");
+      var barrier = new CyclicBarrier(threads + 1);
+      List<CompletableFuture<Void>> callers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        callers.add(CompletableFuture.runAsync(() -> {
+          try {
+            barrier.await();
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+          while (true) {
+            try {
+              long count = shared.strongCount();
+              assert count >= 2 : count;
+            } catch (IllegalStateException e) {
+              return;
+            }
+          }
+        }, task -> new Thread(task).start()));
+      }
+      barrier.await();
+      Thread.sleep(1);
+      shared.close();
+      for (var caller : callers) {
+        caller.join();
+      }
+      assert Coverall.getNumAlive() == 0 : "freed once the last call ended";
+    }
+    System.out.println("close racing calls ... ok");
+  }
+}
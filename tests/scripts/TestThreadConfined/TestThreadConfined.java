@@ -0,0 +1,100 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import uniffi.coverall.*;
+
+/**
+ * Test a `thread_confined` object's lifecycle and thread checks. The checks are read once, when
+ * the class is initialized, so turning them off is tested in a second JVM running this class with
+ * the `unchecked` argument.
+ */
+public class TestThreadConfined {
+  static void assertIllegalState(Runnable call, String what) {
+    try {
+      call.run();
+      throw new AssertionError(what + " should throw");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+  }
+
+  // Run on another thread, rethrowing what it threw here.
+  static void onOtherThread(Runnable call) {
+    try {
+      CompletableFuture.runAsync(call, task -> new Thread(task).start()).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].equals("unchecked")) {
+      // Another thread can use the object once the checks are off.
+      try (var coveralls = new Coveralls("test_unchecked")) {
+        assert coveralls.strongCount() == 2;
+        onOtherThread(() -> {
+          assert coveralls.strongCount() == 2;
+        });
+      }
+      assert Coverall.getNumAlive() == 0;
+      System.out.println("unchecked ... ok");
+      return;
+    }
+
+    // Calls after close() throw, and the object is freed.
+    var coveralls = new Coveralls("test_close");
+    assert coveralls.strongCount() == 2;
+    coveralls.close();
+    assertIllegalState(() -> coveralls.strongCount(), "a call after close()");
+    assert Coverall.getNumAlive() == 0;
+    coveralls.close();
+    assert Coverall.getNumAlive() == 0;
+    System.out.println("close ... ok");
+
+    // Closing during a call leaves the free to that call, and it's only freed once.
+    var inCall = new Coveralls("test_in_flight");
+    inCall.callWithHandle(handle -> {
+      inCall.close();
+      assert Coverall.getNumAlive() == 1 : "freed during a call";
+      // Drop the reference the call took on the Rust object.
+      FfiConverterTypeCoveralls.INSTANCE.lift(handle).close();
+      assert Coverall.getNumAlive() == 1 : "freed during a call";
+      return null;
+    });
+    assert Coverall.getNumAlive() == 0 : "not freed after the last call";
+    inCall.close();
+    assert Coverall.getNumAlive() == 0;
+    System.out.println("close with a call in flight ... ok");
+
+    // The object belongs to the first thread that calls it, other threads can't call or close it.
+    try (var owned = new Coveralls("test_owner")) {
+      assert owned.strongCount() == 2;
+      onOtherThread(() -> assertIllegalState(() -> owned.strongCount(), "a call from another thread"));
+      onOtherThread(() -> assertIllegalState(() -> owned.close(), "close() from another thread"));
+      assert owned.getName().equals("test_owner") : "still usable on its own thread";
+    }
+    assert Coverall.getNumAlive() == 0;
+    System.out.println("cross-thread calls ... ok");
+
+    // The same checks with `threadConfinedChecks` turned off.
+    var unchecked = new ProcessBuilder(
+        ProcessHandle.current().info().command().orElseThrow(),
+        "-ea",
+        "--enable-native-access=ALL-UNNAMED",
+        "-Djava.library.path=" + System.getProperty("java.library.path"),
+        "-Duniffi.coverall.threadConfinedChecks=false",
+        "-classpath", System.getProperty("java.class.path"),
+        TestThreadConfined.class.getName(),
+        "unchecked")
+        .inheritIO()
+        .start();
+    int status = unchecked.waitFor();
+    assert status == 0 : "the unchecked run failed";
+  }
+}
@@ -0,0 +1,93 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import uniffi.benchmarks.*;
+
+/**
+ * Soak test for calls made from many short-lived virtual threads.
+ *
+ * Each of 10M virtual threads makes a primitive call (RustCallStatus only) and a string call
+ * (RustBuffer alloc, struct return and free). Native memory for call statuses and struct returns
+ * must stay bounded no matter how many threads have ever made a call, so the process RSS outside
+ * the Java heap has to stay flat from the first batch to the last.
+ *
+ * RSS is read from /proc/self/status, so the test is skipped where that doesn't exist.
+ */
+public class TestVirtualThreadSoak {
+  static final int BATCHES = 10;
+  static final int THREADS_PER_BATCH = 1_000_000;
+  // Allowance for JIT code, metaspace and malloc arena noise between the first and last batch.
+  // Leaking one 32 byte status per thread alone would be ~290 MB over the last 9M threads.
+  static final long MAX_GROWTH_KB = 64 * 1024;
+
+  static final Path PROC_STATUS = Path.of("/proc/self/status");
+
+  public static void main(String[] args) throws Exception {
+    if (!Files.isReadable(PROC_STATUS)) {
+      System.out.println("virtual thread soak ... skipped, no " + PROC_STATUS);
+      return;
+    }
+    AtomicLong failures = new AtomicLong();
+    Runnable call = () -> {
+      try {
+        Benchmarks.testCaseCallOnly();
+        if (Benchmarks.testCaseStrings("a", "b") == null) {
+          failures.incrementAndGet();
+        }
+      } catch (Throwable t) {
+        failures.incrementAndGet();
+      }
+    };
+
+    long baselineKb = 0;
+    for (int batch = 0; batch < BATCHES; batch++) {
+      try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        for (int i = 0; i < THREADS_PER_BATCH; i++) {
+          executor.execute(call);
+        }
+      }
+      long nativeKb = getNativeRssKb();
+      System.out.println(MessageFormat.format(
+          "batch {0}: {1} virtual threads, non-heap RSS {2} KB", batch + 1,
+          (long) (batch + 1) * THREADS_PER_BATCH, nativeKb));
+      if (batch == 0) {
+        baselineKb = nativeKb;
+      }
+    }
+    long growthKb = getNativeRssKb() - baselineKb;
+
+    assert failures.get() == 0 : failures.get() + " calls failed";
+    assert growthKb < MAX_GROWTH_KB
+        : MessageFormat.format(
+            "non-heap RSS grew {0} KB over {1} virtual threads", growthKb,
+            (long) (BATCHES - 1) * THREADS_PER_BATCH);
+    System.out.println("virtual thread soak ... ok");
+  }
+
+  // Process RSS minus the committed Java heap, after letting the GC free unreachable slabs.
+  private static long getNativeRssKb() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(50);
+    }
+    long heapKb = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getCommitted() / 1024;
+    return getProcessRssKb() - heapKb;
+  }
+
+  // The VmRSS line of /proc/self/status, e.g. "VmRSS:\t  123456 kB".
+  private static long getProcessRssKb() throws Exception {
+    for (String line : Files.readAllLines(PROC_STATUS)) {
+      if (line.startsWith("VmRSS:")) {
+        return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim());
+      }
+    }
+    throw new IllegalStateException("no VmRSS in " + PROC_STATUS);
+  }
+}
@@ -101,10 +101,14 @@ fn run_test(fixture_name: &str, test_file: &str) -> Result<()> {
     // compile generated bindings and form jar
     let jar_file = build_jar(fixture_name, &out_dir)?;
 
-    // compile test
+    // compile test, along with any helper classes next to it
     let status = Command::new("javac")
         .arg("-classpath")
-        .arg(calc_classpath(vec![&out_dir, &jar_file]))
+        .arg(calc_classpath(vec![
+            &out_dir,
+            &jar_file,
+            &test_path.parent().unwrap().to_path_buf(),
+        ]))
         // Our tests should not produce any warnings.
         .arg("-Werror")
         .arg(&test_path)
@@ -371,8 +375,26 @@ fixture_tests! {
     (test_external_types, "uniffi-fixture-ext-types", "scripts/TestImportedTypes/TestImportedTypes.java"),
     (test_futures, "uniffi-example-futures", "scripts/TestFutures.java"),
     (test_futures_fixtures, "uniffi-fixture-futures", "scripts/TestFixtureFutures/TestFixtureFutures.java"),
+    (test_async_fast_path, "uniffi-fixture-futures", "scripts/TestAsyncFastPath/TestAsyncFastPath.java"),
+    (test_async_blocking, "uniffi-fixture-futures", "scripts/TestAsyncBlocking/TestAsyncBlocking.java"),
+    (test_async_executors, "uniffi-fixture-futures", "scripts/TestAsyncExecutors/TestAsyncExecutors.java"),
+    (test_async_direct_lift, "uniffi-fixture-futures", "scripts/TestAsyncDirectLift/TestAsyncDirectLift.java"),
+    (test_async_limits, "uniffi-fixture-futures", "scripts/TestAsyncLimits/TestAsyncLimits.java"),
+    (test_async_coalesce, "uniffi-fixture-futures", "scripts/TestAsyncCoalesce/TestAsyncCoalesce.java"),
+    (test_async_metrics, "uniffi-fixture-futures", "scripts/TestAsyncMetrics/TestAsyncMetrics.java"),
+    (test_async_batch, "uniffi-fixture-futures", "scripts/TestAsyncBatch/TestAsyncBatch.java"),
     (test_trait_methods, "uniffi-fixture-trait-methods", "scripts/TestTraitMethods.java"),
     (test_omit_checksums, "uniffi-example-arithmetic", "scripts/TestOmitChecksums/TestOmitChecksums.java"),
+    (test_lazy_linking, "uniffi-example-arithmetic", "scripts/TestLazyLinking/TestLazyLinking.java"),
+    (test_inline_calls, "uniffi-example-sprites", "scripts/TestInlineCalls/TestInlineCalls.java"),
+    (test_blocking_calls, "uniffi-example-arithmetic", "scripts/TestBlockingCalls/TestBlockingCalls.java"),
+    (test_allocations, "uniffi-fixture-benchmarks", "scripts/TestAllocations/TestAllocations.java"),
+    (test_object_allocations, "uniffi-fixture-coverall", "scripts/TestAllocations/TestObjectAllocations.java"),
+    (test_trait_method_allocations, "uniffi-fixture-trait-methods", "scripts/TestAllocations/TestTraitMethodAllocations.java"),
+    (test_shared_object, "uniffi-fixture-coverall", "scripts/TestSharedObject/TestSharedObject.java"),
+    (test_thread_confined, "uniffi-fixture-coverall", "scripts/TestThreadConfined/TestThreadConfined.java"),
+    (test_call_scope, "uniffi-fixture-benchmarks", "scripts/TestCallScope/TestCallScope.java"),
+    (test_handle_map, "uniffi-fixture-benchmarks", "scripts/TestHandleMap/TestHandleMap.java"),
     (test_proc_macro, "uniffi-fixture-proc-macro", "scripts/TestProcMacro.java"),
     (test_rename, "uniffi-fixture-rename", "scripts/TestRename/TestRename.java"),
     (test_primitive_arrays, "uniffi-fixture-primitive-arrays", "scripts/TestPrimitiveArrays.java"),
@@ -386,3 +408,14 @@ fn test_library_override_absolute_path() -> Result<()> {
         "arithmetic",
     )
 }
+
+// Makes 10M calls from as many virtual threads, so it takes minutes and isn't part of the default
+// run: `cargo test --test tests -- --ignored test_virtual_thread_soak`.
+#[test]
+#[ignore]
+fn test_virtual_thread_soak() -> Result<()> {
+    run_test(
+        "uniffi-fixture-benchmarks",
+        "scripts/TestVirtualThreads/TestVirtualThreadSoak.java",
+    )
+}